@@ -22,6 +22,7 @@ import org.semanticweb.owlapi.model.OWLOntologyStorageException;
 import org.semanticweb.owlapi.model.OWLPropertyAxiom;
 
 import com.handi.floci.modules.conceptclassification.HierarchyGenerator;
+import com.handi.floci.modules.persistence.PendingEdits;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -44,6 +45,7 @@ import javafx.util.Callback;
 public class IndividualsOverviewController {
 	private MainController parent;
 	private HierarchyGenerator hierarchyGenerator;
+	private PendingEdits pendingEdits;
 	private OWLNamedIndividual namedIndividual;
 	private boolean checkBoxHack = true;
 	
@@ -201,6 +203,11 @@ public class IndividualsOverviewController {
     	});
     }
     
+    // The edits of this window, undone by the owner if the window is closed without saving
+    public void setPendingEdits(PendingEdits pendingEdits) {
+    	this.pendingEdits = pendingEdits;
+    }
+    
     public void setHierarchyGenerator(HierarchyGenerator hierarchyGenerator) {
     	this.hierarchyGenerator = hierarchyGenerator;
     }
@@ -469,9 +476,9 @@ public class IndividualsOverviewController {
     
     @FXML protected void saveOntologyToFile(ActionEvent event) {
     	try {
-			hierarchyGenerator.getOntologyManager().saveOntology(hierarchyGenerator.getOntology());
-			
-			hierarchyGenerator.reload();
+			// The edits are already in the live ontology and its reasoner: only the document is written
+			hierarchyGenerator.saveOntology();
+			if(pendingEdits != null) pendingEdits.commit();
 			
 			parent.kb = null;
 			parent.showIndividuals();
@@ -1,15 +1,23 @@
 package com.handi.floci.controller;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -19,12 +27,16 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.Menu;
+import javafx.scene.control.MenuBar;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
 import javafx.scene.control.TreeView;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
@@ -42,6 +54,7 @@ import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDatatype;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
@@ -49,9 +62,15 @@ import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import com.handi.floci.Main;
 import com.handi.floci.modules.conceptclassification.HierarchyGenerator;
+import com.handi.floci.modules.display.WebViewBridge;
+import com.handi.floci.modules.persistence.FuzzyDLCache;
+import com.handi.floci.modules.persistence.PendingEdits;
 import com.handi.floci.modules.individualclassification.FuzzyOwl2toFuzzyDL;
+import com.handi.floci.modules.individualclassification.FuzzyOwl2toKnowledgeBase;
 import com.handi.floci.modules.individualclassification.IndividualClassificationDisplayer;
 import com.handi.floci.modules.individualclassification.SimpleFuzzyReasoner;
+import com.handi.floci.modules.reasoning.ReasoningPipeline;
+import com.handi.floci.modules.reasoning.ReasoningPipeline.StageContext;
 
 import fuzzydl.Concept;
 import fuzzydl.Individual;
@@ -59,8 +78,6 @@ import fuzzydl.KnowledgeBase;
 import fuzzydl.MinInstanceQuery;
 import fuzzydl.MinSatisfiableQuery;
 import fuzzydl.Query;
-import fuzzydl.exception.FuzzyOntologyException;
-import fuzzydl.exception.InconsistentOntologyException;
 import fuzzydl.milp.Solution;
 import fuzzydl.parser.Parser;
 import fuzzyowl2.FuzzyOwl2;
@@ -85,6 +102,23 @@ public class MainController {
 	
 	private int reasonerType = REASONER_SFR;;
 	private int affichageType;
+	// Classify the individuals against the locality module of their signature instead of the whole ontology
+	private boolean modularReasoning = false;
+	
+	// Loading, classification and FuzzyDL run there, one pipeline at a time, never on the JavaFX thread
+	private final ExecutorService reasoningExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "floci-reasoning");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private Task<?> runningTask;
+	// Solved FuzzyDL knowledge bases by ontology content, so that kb = null costs a lookup when the content comes back
+	private final FuzzyDLCache fuzzyDLCache = new FuzzyDLCache();
+	// Hands the hierarchy and the degrees to the page shown in the webview
+	private WebViewBridge webViewBridge;
 	
 	
     @FXML private TreeView<String> hierarchyTree;
@@ -93,11 +127,19 @@ public class MainController {
     @FXML private WebView webview;
     @FXML private CheckMenuItem checkSFR;
     @FXML private CheckMenuItem checkFuzzyDL;
+    @FXML private CheckMenuItem checkModular;
     @FXML private CheckMenuItem checkVertical;
     @FXML private CheckMenuItem checkHorizontal;
     @FXML private CheckMenuItem checkCircular;
     
     @FXML private Slider zoomSlider;
+    
+    @FXML private MenuBar menuBar;
+    @FXML private HBox actionsBox;
+    @FXML private Button classifyButton;
+    @FXML private Label pipelineStatus;
+    @FXML private ProgressBar pipelineProgress;
+    @FXML private Button cancelPipelineButton;
     /**
      * The constructor.
      * The constructor is called before the initialize() method.
@@ -109,6 +151,7 @@ public class MainController {
      * after the fxml file has been loaded.
      */
     @FXML private void initialize() { 
+    	webViewBridge = new WebViewBridge(webview.getEngine());
     	webview.getEngine().load(ACCUEIL);
     	
     	individualsList.setCellFactory(new Callback<ListView<OWLNamedIndividual>, ListCell<OWLNamedIndividual>>(){
@@ -149,33 +192,120 @@ public class MainController {
         chooser.getExtensionFilters().addAll(
                 new FileChooser.ExtensionFilter("Fichier Ontologie", "*.owl"),
                 new FileChooser.ExtensionFilter("Tout les fichiers", "*.*"));
-        File ontologyFile = chooser.showOpenDialog(uploadOntologyButton.getScene().getWindow());
+        final File ontologyFile = chooser.showOpenDialog(uploadOntologyButton.getScene().getWindow());
+        if(ontologyFile == null) return;
        
-		try {		
-			// Load the Hierarchy Module
-			hierarchyGenerator = new HierarchyGenerator(ontologyFile);
-	        ontologyIRI = hierarchyGenerator.getOntology().getOntologyID().getOntologyIRI().toString();
-			// Generate the Concept Hierarchy
-			hierarchyGenerator.getConceptsHierarchy(hierarchyTree);
-			
-			// Rafrechir l'affichage
-			setShowpage();
-			System.out.println(showPage);
-			webview.getEngine().load(showPage);
-			
-			kb = null;
-			
-			// Get Individuals
-			showIndividuals();
-
-		} catch (OWLOntologyCreationException e) {
-			//e.printStackTrace();
-		} catch (Exception e) {
-			// Get Individuals
-			showIndividuals();
-			//e.printStackTrace();
-		}
-		
+        ReasoningPipeline<HierarchyGenerator> pipeline = ReasoningPipeline
+        		.start("Chargement de l'ontologie", new ReasoningPipeline.Stage<Void, HierarchyGenerator>() {
+					@Override
+					public HierarchyGenerator run(Void input, StageContext context) throws Exception {
+						// Load the Hierarchy Module
+						return new HierarchyGenerator(ontologyFile);
+					}
+				})
+        		.then("Classification des concepts", new ReasoningPipeline.Stage<HierarchyGenerator, HierarchyGenerator>() {
+					@Override
+					public HierarchyGenerator run(final HierarchyGenerator generator, StageContext context) throws Exception {
+						context.onCancel(new Runnable() {
+							@Override
+							public void run() {
+								generator.getReasoner().interrupt();
+							}
+						});
+						generator.exportHierarchy();
+						return generator;
+					}
+				});
+        
+        runPipeline(pipeline, new Consumer<HierarchyGenerator>() {
+			@Override
+			public void accept(HierarchyGenerator generator) {
+				// The previous ontology is closed: its reasoners and listeners are released
+				if(hierarchyGenerator != null) hierarchyGenerator.dispose();
+				hierarchyGenerator = generator;
+		        ontologyIRI = hierarchyGenerator.getOntology().getOntologyID().getOntologyIRI().toString();
+		        pipelineStatus.setText("Termin, raisonneur " + generator.getReasonerSelection());
+				// Show the Concept Hierarchy
+				hierarchyGenerator.showHierarchy(hierarchyTree);
+				webViewBridge.showHierarchy(hierarchyGenerator.getHierarchyJson());
+				
+				// Rafrechir l'affichage
+				setShowpage();
+				webview.getEngine().load(showPage);
+				
+				kb = null;
+				
+				// Get Individuals
+				showIndividuals();
+				
+				showFuzzyLabelErrors(generator);
+			}
+		});
+    }
+    
+    // Reported once per load: the values of these datatypes are of degree 0 until their label is fixed
+    private void showFuzzyLabelErrors(HierarchyGenerator generator) {
+    	Map<OWLDatatype, String> errors = generator.getFuzzyLabelErrors();
+    	if(errors.isEmpty()) return;
+    	StringBuilder message = new StringBuilder("Ces labels flous ne sont pas valides, les valeurs de leurs datatypes sont de degr 0 :");
+    	for(Map.Entry<OWLDatatype, String> error : errors.entrySet()) {
+    		message.append("\n").append(error.getKey().getIRI().getFragment()).append(" : ").append(error.getValue());
+    	}
+    	Dialogs.create()
+    	        .owner(uploadOntologyButton.getScene().getWindow())
+    	        .title("Labels flous")
+    	        .masthead(null)
+    	        .message(message.toString())
+    	        .showWarning();
+    }
+    
+    // Runs the pipeline in the background; the result is handed to onResult on the JavaFX thread
+    private <T> void runPipeline(ReasoningPipeline<T> pipeline, final Consumer<T> onResult) {
+    	if(runningTask != null) runningTask.cancel();
+    	
+    	final Task<T> task = pipeline.createTask();
+    	pipelineStatus.textProperty().bind(task.messageProperty());
+    	pipelineProgress.progressProperty().bind(task.progressProperty());
+    	cancelPipelineButton.disableProperty().bind(task.runningProperty().not());
+    	// The ontology must not be edited while it is being reasoned on
+    	menuBar.disableProperty().bind(task.runningProperty());
+    	actionsBox.disableProperty().bind(task.runningProperty());
+    	classifyButton.disableProperty().bind(task.runningProperty());
+    	
+    	task.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
+			@Override
+			public void handle(WorkerStateEvent event) {
+				endPipeline("Termin", 1);
+				onResult.accept(task.getValue());
+			}
+		});
+    	task.setOnCancelled(new EventHandler<WorkerStateEvent>() {
+			@Override
+			public void handle(WorkerStateEvent event) {
+				endPipeline("Annul", 0);
+			}
+		});
+    	task.setOnFailed(new EventHandler<WorkerStateEvent>() {
+			@Override
+			public void handle(WorkerStateEvent event) {
+				task.getException().printStackTrace();
+				endPipeline("Erreur : " + task.getException().getMessage(), 0);
+			}
+		});
+    	runningTask = task;
+    	reasoningExecutor.execute(task);
+    }
+    
+    private void endPipeline(String status, double progress) {
+    	runningTask = null;
+    	pipelineStatus.textProperty().unbind();
+    	pipelineStatus.setText(status);
+    	pipelineProgress.progressProperty().unbind();
+    	pipelineProgress.setProgress(progress);
+    }
+    
+    @FXML protected void cancelPipeline(ActionEvent event) {
+    	if(runningTask != null) runningTask.cancel();
     }
     
     @SuppressWarnings("deprecation")
@@ -198,9 +328,11 @@ public class MainController {
 	    		OWLClassAssertionAxiom axiom = hierarchyGenerator.getOntologyManager().getOWLDataFactory().
 	    				getOWLClassAssertionAxiom(thing, individu);
 	    		
+	    		// The new individual is undone along with the other edits if the window is closed without saving
+	    		PendingEdits edits = hierarchyGenerator.startEdits();
 	    		hierarchyGenerator.getOntologyManager().addAxiom(hierarchyGenerator.getOntology(), axiom);
 	    		
-	    		showIndividualsWindow(event, individu, false);
+	    		showIndividualsWindow(event, individu, false, edits);
     		} else {
         		Dialogs.create()
                 .owner(uploadOntologyButton.getScene().getWindow())
@@ -222,7 +354,7 @@ public class MainController {
     		if(!list.isEmpty()) individu = list.get(0);	
     	}
     	
-    	if(individu != null) showIndividualsWindow(event, individu, true);
+    	if(individu != null) showIndividualsWindow(event, individu, true, hierarchyGenerator.startEdits());
     	else {
 			Dialogs.create()
             .owner(uploadOntologyButton.getScene().getWindow())
@@ -233,7 +365,8 @@ public class MainController {
 		}
     }
     
-    private void showIndividualsWindow(ActionEvent event, OWLNamedIndividual individu, boolean editIndividual) {
+    private void showIndividualsWindow(ActionEvent event, OWLNamedIndividual individu, boolean editIndividual,
+    		final PendingEdits edits) {
     	try {
 	    	// Load main layout.
 	        FXMLLoader loader = new FXMLLoader(Main.class.getResource("view/individuals_overview_layout.fxml"));
@@ -241,6 +374,7 @@ public class MainController {
             IndividualsOverviewController individualsController = (IndividualsOverviewController)loader.getController();
             individualsController.setParent(this);
             individualsController.setHierarchyGenerator(hierarchyGenerator);
+            individualsController.setPendingEdits(edits);
             individualsController.setNamedIndividual(individu);
             individualsController.showIndividuals();
             individualsController.showAttributes();
@@ -255,11 +389,8 @@ public class MainController {
 	        stage.setOnCloseRequest(new EventHandler<WindowEvent>() {
 				@Override
 				public void handle(WindowEvent event) {
-					try {
-						hierarchyGenerator.reload();
-					} catch (OWLOntologyCreationException e) {
-						e.printStackTrace();
-					}
+					// Closed without saving: the edits are undone in the live ontology, no reload
+					edits.rollback();
 					//showIndividuals();
 				}
 	        });
@@ -277,66 +408,157 @@ public class MainController {
     }
     
     public void showCleanHierarchyInWebview() {
-    	// empty the degrees JSON file
-		try {
-			FileWriter file = null;
-			try {
-				file = new FileWriter("D:\\Development\\Workspace\\Java\\FLOCI\\src\\com\\handi\\floci\\modules\\display\\degrees.json");
-				file.write("");
-			} catch(Exception e) {
-				e.printStackTrace();
-			} finally {
-				try {
-					file.flush();
-					file.close();
-				} catch (IOException e1) {
-					e1.printStackTrace();
-				}
-			}
-			System.out.println(showPage);
-			webview.getEngine().load(showPage);
-		} catch(Exception e) {
-			e.printStackTrace();
-		}
+    	// Clear the degrees shown, without loading the page again
+    	webViewBridge.clearDegrees();
     }
     
-    public void intitializeFuzzyDL(String ontologyFilePath) {
-    	try {	
-    		String outputPath = "D:/test.txt";
-    		FuzzyOwl2toFuzzyDL parser = new FuzzyOwl2toFuzzyDL(ontologyFilePath, outputPath);
-    		parser.translateOwl2Ontology();
-    		
-			kb = Parser.getKB(outputPath);
-			Parser.reset();
-
-			kb.solveKB();
-			
-		} catch (FuzzyOntologyException e) {
-			e.printStackTrace();
-		} catch (InconsistentOntologyException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			
-			e.printStackTrace();
-		}
+    // Translation of the ontology document to a FuzzyDL knowledge base, built in memory when possible
+    private static KnowledgeBase translateToFuzzyDL(String ontologyFilePath, AtomicReference<Path> program, StageContext context)
+    		throws Exception {
+    	FuzzyOwl2toKnowledgeBase translator = new FuzzyOwl2toKnowledgeBase(ontologyFilePath);
+    	KnowledgeBase knowledgeBase = translator.translate();
+    	if(knowledgeBase != null) return knowledgeBase;
+    	
+    	// Through a FuzzyDL program otherwise, kept for the cache
+    	context.updateStageMessage("programme FuzzyDL (" + translator.getUnsupportedConstruct() + ")");
+    	Path programFile = Files.createTempFile("floci-fuzzydl", ".fdl");
+    	programFile.toFile().deleteOnExit();
+    	FuzzyOwl2toFuzzyDL parser = new FuzzyOwl2toFuzzyDL(ontologyFilePath, programFile.toString());
+    	parser.translateOwl2Ontology();
+    	program.set(programFile);
+    	knowledgeBase = Parser.getKB(programFile.toString());
+    	Parser.reset();
+    	return knowledgeBase;
+    }
+    
+    private static KnowledgeBase solveFuzzyDL(KnowledgeBase knowledgeBase) throws Exception {
+    	knowledgeBase.solveKB();
+    	return knowledgeBase;
     }
     
     @SuppressWarnings("deprecation")
 	@FXML protected void classifySelectedIndividual(ActionEvent event) {
-    	OWLNamedIndividual individu = individualsList.getSelectionModel().getSelectedItem();
+    	final OWLNamedIndividual individu = individualsList.getSelectionModel().getSelectedItem();
     	if(individu != null) {
+    		final HierarchyGenerator generator = hierarchyGenerator;
 	    	if(reasonerType == REASONER_FUZZYDL) {
-				if(kb == null) {
-					intitializeFuzzyDL(hierarchyGenerator.getOntologyFilePath());
+	    		final boolean modular = modularReasoning;
+	    		ReasoningPipeline<KnowledgeBase> solved;
+				if(modular) {
+					// A KB per module, not kept as the KB of the ontology: cached by the content of the module,
+					// so the individuals of one neighbourhood share it
+					final AtomicReference<String> cacheKey = new AtomicReference<String>();
+					final AtomicReference<KnowledgeBase> cachedKB = new AtomicReference<KnowledgeBase>();
+					final AtomicReference<String> modulePath = new AtomicReference<String>();
+					final AtomicReference<Path> program = new AtomicReference<Path>();
+					solved = ReasoningPipeline
+							.start("Extraction du module", new ReasoningPipeline.Stage<Void, OWLOntology>() {
+								@Override
+								public OWLOntology run(Void input, StageContext context) throws Exception {
+									OWLOntology module = generator.getModularReasoner().getModule(individu);
+									cacheKey.set(FuzzyDLCache.key(module));
+									cachedKB.set(fuzzyDLCache.get(cacheKey.get()));
+									return module;
+								}
+							})
+							.then("Traduction vers FuzzyDL", new ReasoningPipeline.Stage<OWLOntology, KnowledgeBase>() {
+								@Override
+								public KnowledgeBase run(OWLOntology module, StageContext context) throws Exception {
+									if(cachedKB.get() != null) return cachedKB.get();
+									KnowledgeBase parsed = fuzzyDLCache.parseProgram(cacheKey.get());
+									if(parsed != null) return parsed;
+									File moduleFile = File.createTempFile("floci-module", ".owl");
+									moduleFile.deleteOnExit();
+									generator.getModularReasoner().writeModule(individu, moduleFile);
+									modulePath.set(moduleFile.getAbsolutePath());
+									return translateToFuzzyDL(modulePath.get(), program, context);
+								}
+							})
+							.then("Rsolution FuzzyDL", new ReasoningPipeline.Stage<KnowledgeBase, KnowledgeBase>() {
+								@Override
+								public KnowledgeBase run(KnowledgeBase knowledgeBase, StageContext context) throws Exception {
+									if(knowledgeBase == cachedKB.get()) return knowledgeBase;
+									solveFuzzyDL(knowledgeBase);
+									fuzzyDLCache.put(cacheKey.get(), knowledgeBase, program.get(), modulePath.get());
+									return knowledgeBase;
+								}
+							});
+				} else if(kb == null) {
+					final AtomicReference<String> cacheKey = new AtomicReference<String>();
+					final AtomicReference<KnowledgeBase> cachedKB = new AtomicReference<KnowledgeBase>();
+					final AtomicReference<Path> program = new AtomicReference<Path>();
+					solved = ReasoningPipeline
+							.start("Traduction vers FuzzyDL", new ReasoningPipeline.Stage<Void, KnowledgeBase>() {
+								@Override
+								public KnowledgeBase run(Void input, StageContext context) throws Exception {
+									// FuzzyDL reads the document: the last edits must be on disk
+									generator.awaitSaved();
+									// An unchanged content translated and solved before is neither translated nor solved again
+									cacheKey.set(FuzzyDLCache.key(generator.getOntologyHash(), generator.getOntology()));
+									cachedKB.set(fuzzyDLCache.get(cacheKey.get()));
+									if(cachedKB.get() != null) return cachedKB.get();
+									// The program of a KB which cannot be serialized spares the translation, not the resolution
+									KnowledgeBase parsed = fuzzyDLCache.parseProgram(cacheKey.get());
+									if(parsed != null) return parsed;
+									return translateToFuzzyDL(generator.getOntologyFilePath(), program, context);
+								}
+							})
+							.then("Rsolution FuzzyDL", new ReasoningPipeline.Stage<KnowledgeBase, KnowledgeBase>() {
+								@Override
+								public KnowledgeBase run(KnowledgeBase knowledgeBase, StageContext context) throws Exception {
+									if(knowledgeBase == cachedKB.get()) return knowledgeBase;
+									solveFuzzyDL(knowledgeBase);
+									fuzzyDLCache.put(cacheKey.get(), knowledgeBase, program.get(), generator.getOntologyFilePath());
+									return knowledgeBase;
+								}
+							});
+				} else {
+					final KnowledgeBase solvedKB = kb;
+					solved = ReasoningPipeline.start("Base FuzzyDL", new ReasoningPipeline.Stage<Void, KnowledgeBase>() {
+						@Override
+						public KnowledgeBase run(Void input, StageContext context) {
+							return solvedKB;
+						}
+					});
 				}
-				IndividualClassificationDisplayer displayer = new IndividualClassificationDisplayer(kb, hierarchyGenerator.getOntology());
-				displayer.calculateMembershipFuzzyDL(individu);
+				final AtomicReference<KnowledgeBase> solvedKB = new AtomicReference<KnowledgeBase>();
+				ReasoningPipeline<Map<String, Double>> pipeline = solved.then("Classification de l'individu",
+						new ReasoningPipeline.Stage<KnowledgeBase, Map<String, Double>>() {
+							@Override
+							public Map<String, Double> run(KnowledgeBase knowledgeBase, StageContext context) {
+								solvedKB.set(knowledgeBase);
+								IndividualClassificationDisplayer displayer = new IndividualClassificationDisplayer(knowledgeBase, generator.getOntology());
+								return displayer.calculateMembershipFuzzyDL(individu);
+							}
+						});
+				runPipeline(pipeline, new Consumer<Map<String, Double>>() {
+					@Override
+					public void accept(Map<String, Double> degrees) {
+						if(!modular) kb = solvedKB.get();
+						// Only the nodes whose degree changed are recolored, the page stays loaded
+						webViewBridge.showDegrees(degrees);
+					}
+				});
 			} else {
-				IndividualClassificationDisplayer displayer = new IndividualClassificationDisplayer(hierarchyGenerator);
-				displayer.calculateMembershipSFR(individu);
+				final boolean modular = modularReasoning;
+				ReasoningPipeline<Map<String, Double>> pipeline = ReasoningPipeline.start("Classification de l'individu",
+						new ReasoningPipeline.Stage<Void, Map<String, Double>>() {
+							@Override
+							public Map<String, Double> run(Void input, StageContext context) throws Exception {
+								IndividualClassificationDisplayer displayer = new IndividualClassificationDisplayer(generator, modular);
+								Map<String, Double> degrees = displayer.calculateMembershipSFR(individu);
+								// The types realized meanwhile are kept with the taxonomy for the next opening
+								if(!modular) generator.saveRealizedTypes();
+								return degrees;
+							}
+						});
+				runPipeline(pipeline, new Consumer<Map<String, Double>>() {
+					@Override
+					public void accept(Map<String, Double> degrees) {
+						webViewBridge.showDegrees(degrees);
+					}
+				});
 			}
-	    	
-	    	webview.getEngine().load(showPage);
     	} else {
     		Dialogs.create()
         	        .owner(uploadOntologyButton.getScene().getWindow())
@@ -365,9 +587,8 @@ public class MainController {
 	        	}
 	    		
 	    		try {
-	    			hierarchyGenerator.getOntologyManager().saveOntology(hierarchyGenerator.getOntology());
-	    			
-	    			hierarchyGenerator.reload();
+	    			// The reasoner follows the removal incrementally, the document is written in the background
+	    			hierarchyGenerator.saveOntology();
 	    			
 	    			kb = null;
 	    			showIndividuals();
@@ -399,6 +620,9 @@ public class MainController {
     	reasonerType = REASONER_FUZZYDL;
     	individualsList.getSelectionModel().clearSelection();
     }
+    @FXML protected void toggleModularReasoning(ActionEvent event) {
+    	modularReasoning = checkModular.isSelected();
+    }
     @FXML protected void changeAffichageToVertical(ActionEvent event) {
     	checkVertical.setSelected(true);
     	checkHorizontal.setSelected(false);
@@ -451,7 +675,6 @@ public class MainController {
     	} else {
     		showPage = VERTICAL_SHOW_PAGE; 
     	}
-    	System.out.println(showPage);
 		webview.getEngine().load(showPage);
     }
 }
@@ -0,0 +1,102 @@
+package com.handi.floci.modules.conceptclassification;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.OWLClass;
+
+/*
+ * Writes the taxonomy for the visualization, streamed to the file, in a compact form:
+ *   {"nodes":["Thing","Person",...],"links":[0,1,1,2,...]}
+ * A node is identified by its index in "nodes", and "links" holds (source, target) pairs of indexes.
+ * The links are written as they are walked; only the index of every class is kept, in a map of the size
+ * of the signature. Nothing is written to a file unless a path is given (HierarchyGenerator.setHierarchyExportPath
+ * or the floci.hierarchy.file property): the application hands the document to the WebViewBridge.
+ */
+public class HierarchyExporter {
+	private final Path path;
+
+	public HierarchyExporter(Path path) {
+		this.path = path;
+	}
+
+	// The taxonomy classes first, breadth first, then the other classes, without links
+	public void export(Taxonomy taxonomy, Collection<OWLClass> otherClasses) throws IOException {
+		if(path.getParent() != null) Files.createDirectories(path.getParent());
+		try(Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			write(writer, taxonomy, otherClasses);
+		}
+	}
+
+	// The same document in memory, e.g. for the WebViewBridge
+	public static String toJson(Taxonomy taxonomy, Collection<OWLClass> otherClasses) {
+		StringWriter writer = new StringWriter();
+		try {
+			write(writer, taxonomy, otherClasses);
+		} catch(IOException e) {
+			throw new IllegalStateException(e); // a StringWriter does not fail
+		}
+		return writer.toString();
+	}
+
+	public static void write(Writer writer, Taxonomy taxonomy, Collection<OWLClass> otherClasses) throws IOException {
+		Map<OWLClass, Integer> ids = new HashMap<OWLClass, Integer>();
+		writer.write("{\"nodes\":[");
+		for(OWLClass clazz : taxonomy.getClasses()) {
+			writeNode(writer, clazz, ids);
+		}
+		for(OWLClass clazz : otherClasses) {
+			if(!ids.containsKey(clazz)) writeNode(writer, clazz, ids);
+		}
+
+		writer.write("],\"links\":[");
+		boolean first = true;
+		for(OWLClass clazz : taxonomy.getClasses()) {
+			int source = ids.get(clazz);
+			for(OWLClass child : taxonomy.getChildren(clazz)) {
+				if(!first) writer.write(',');
+				first = false;
+				writer.write(Integer.toString(source));
+				writer.write(',');
+				writer.write(Integer.toString(ids.get(child)));
+			}
+		}
+		writer.write("]}");
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	private static void writeNode(Writer writer, OWLClass clazz, Map<OWLClass, Integer> ids) throws IOException {
+		int id = ids.size();
+		if(id > 0) writer.write(',');
+		ids.put(clazz, id);
+		writeString(writer, clazz.getIRI().getFragment());
+	}
+
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"': writer.write("\\\""); break;
+				case '\\': writer.write("\\\\"); break;
+				case '\n': writer.write("\\n"); break;
+				case '\r': writer.write("\\r"); break;
+				case '\t': writer.write("\\t"); break;
+				default:
+					if(c < 0x20) writer.write(String.format("\\u%04x", (int) c));
+					else writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+}
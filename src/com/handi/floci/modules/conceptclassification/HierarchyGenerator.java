@@ -1,8 +1,15 @@
 package com.handi.floci.modules.conceptclassification;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,84 +17,207 @@ import javafx.scene.control.ListView;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.semanticweb.HermiT.Reasoner;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataProperty;
 import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDatatype;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
+import com.handi.floci.modules.individualclassification.MembershipFunctionRegistry;
+import com.handi.floci.modules.individualclassification.ModularFuzzyReasoner;
+import com.handi.floci.modules.individualclassification.SimpleFuzzyReasoner;
+import com.handi.floci.modules.individualclassification.TruthDegreeCache;
+import com.handi.floci.modules.persistence.BackgroundOntologySaver;
+import com.handi.floci.modules.persistence.ClassificationSnapshot;
+import com.handi.floci.modules.persistence.OntologyHasher;
+import com.handi.floci.modules.persistence.OntologyLoader;
+import com.handi.floci.modules.persistence.PendingEdits;
+import com.handi.floci.modules.reasoning.ReasonerLifecycle;
+import com.handi.floci.modules.reasoning.ReasonerSelection;
+
 public class HierarchyGenerator {
-	private Reasoner m_reasoner;
+	private OWLReasoner m_reasoner;
+	private ReasonerSelection m_reasonerSelection;
+	private ReasonerLifecycle m_lifecycle;
 	private OWLOntologyManager m_manager;
 	private OWLOntology m_ontology;
 	private String ontologyFilePath;
+	private SimpleFuzzyReasoner m_fuzzyReasoner;
+	private ModularFuzzyReasoner m_modularReasoner;
+	private MembershipFunctionRegistry m_membershipFunctions;
+	private Taxonomy m_taxonomy;
+	private int m_taxonomyVersion;
+	private TaxonomyIndex m_taxonomyIndex;
+	private BackgroundOntologySaver m_saver;
+	private final Path m_snapshotDirectory = ClassificationSnapshot.getDefaultDirectory();
+	// Snapshots are written aside, by one thread for all the generators: the taxonomy is immutable, the types copied
+	private static final ExecutorService SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "floci-snapshot-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	// Hash of the current content, computed once and dropped by the next change
+	private volatile String m_ontologyHash;
+	// Types of the restored snapshot, for the fuzzy reasoner created afterwards; dropped by the next change too
+	private Map<OWLNamedIndividual, Set<OWLClass>> m_snapshotTypes;
+	private final OWLOntologyChangeListener m_hashListener = new OWLOntologyChangeListener() {
+		@Override
+		public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+			m_ontologyHash = null;
+			m_snapshotTypes = null;
+		}
+	};
+	private final OntologyLoader m_loader = new OntologyLoader();
+	// The visualization receives the hierarchy through the WebViewBridge; written to a file only if asked for
+	private HierarchyExporter m_hierarchyExporter = System.getProperty("floci.hierarchy.file") == null ? null
+			: new HierarchyExporter(Paths.get(System.getProperty("floci.hierarchy.file")));
+	private Taxonomy m_hierarchyJsonTaxonomy;
+	private String m_hierarchyJson;
 	
 	public HierarchyGenerator(File ontologyFile) throws OWLOntologyCreationException {
 		ontologyFilePath = ontologyFile.getAbsolutePath();
 		// Get hold of an ontology manager
         OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
     
-		// Load the local copy
-		OWLOntology ontology = manager.loadOntologyFromOntologyDocument(ontologyFile);
+		// Load the local copy: its binary copy if the documents did not change, else the imports parsed in parallel
+		OWLOntology ontology = loadOntology(manager, ontologyFile);
 		
-		m_reasoner = new Reasoner(ontology);
+		// The fastest backend complete for the profile of the ontology, HermiT otherwise
+		m_reasonerSelection = ReasonerSelection.select(ontology);
+		m_reasoner = m_reasonerSelection.getReasoner();
+		m_lifecycle = new ReasonerLifecycle(m_reasoner, manager);
 		m_manager = manager;
 		m_ontology = ontology;
+		m_manager.addOntologyChangeListener(m_hashListener);
+		compileMembershipFunctions();
+		m_saver = new BackgroundOntologySaver(m_manager, m_ontology);
+		restoreSnapshot();
 	}
 
+	// Discards the live ontology and parses the document again: edits go through saveOntology instead
 	public void reload() throws OWLOntologyCreationException {
+		m_saver.awaitSaved();
+		m_saver.shutdown();
+		if(m_modularReasoner != null) {
+			m_modularReasoner.dispose();
+			m_modularReasoner = null;
+		}
+		if(m_fuzzyReasoner != null) {
+			m_fuzzyReasoner.dispose();
+			m_fuzzyReasoner = null;
+		}
+		m_lifecycle.dispose();
+		m_reasoner.dispose();
+		m_manager.removeOntologyChangeListener(m_hashListener);
+		m_manager.removeOntologyChangeListener(m_membershipFunctions);
+		m_ontologyHash = null;
+		m_snapshotTypes = null;
+		m_taxonomy = null;
+		m_taxonomyIndex = null;
 		// Get hold of an ontology manager
         OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
     
-		// Load the local copy
-		OWLOntology ontology = manager.loadOntologyFromOntologyDocument(new File(ontologyFilePath));
+		// Load the local copy: its binary copy if the documents did not change, else the imports parsed in parallel
+		OWLOntology ontology = loadOntology(manager, new File(ontologyFilePath));
 		
-		m_reasoner = new Reasoner(ontology);
+		// The fastest backend complete for the profile of the ontology, HermiT otherwise
+		m_reasonerSelection = ReasonerSelection.select(ontology);
+		m_reasoner = m_reasonerSelection.getReasoner();
+		m_lifecycle = new ReasonerLifecycle(m_reasoner, manager);
 		m_manager = manager;
 		m_ontology = ontology;
+		m_manager.addOntologyChangeListener(m_hashListener);
+		compileMembershipFunctions();
+		m_saver = new BackgroundOntologySaver(m_manager, m_ontology);
+		restoreSnapshot();
+	}
+	
+	private OWLOntology loadOntology(OWLOntologyManager manager, File ontologyFile) throws OWLOntologyCreationException {
+		return m_loader.load(manager, ontologyFile);
+	}
+	
+	// At load time, so that a malformed fuzzy label is reported right away; shared with the fuzzy reasoner
+	private void compileMembershipFunctions() {
+		m_membershipFunctions = new MembershipFunctionRegistry(m_ontology,
+				SimpleFuzzyReasoner.getFuzzyLabelProperty(m_ontology, m_manager));
+		m_manager.addOntologyChangeListener(m_membershipFunctions);
+	}
+	
+	// The datatypes whose fuzzyLabel does not parse (their values are of degree 0), with the parser message
+	public Map<OWLDatatype, String> getFuzzyLabelErrors() {
+		return m_membershipFunctions.getErrors();
+	}
+	
+	// Writes the live ontology to its document in the background; the reasoner is kept, nothing is parsed again
+	public void saveOntology() throws OWLOntologyCreationException {
+		m_saver.save();
+	}
+	
+	// Waits for the background saves, for the readers of the document itself
+	public void awaitSaved() {
+		m_saver.awaitSaved();
+	}
+	
+	// Records the edits made from now on to the live ontology, so that they can be undone if not saved
+	public PendingEdits startEdits() {
+		return new PendingEdits(m_manager, m_ontology);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public void getConceptsHierarchy(TreeView<String> hierarchyTree) {
-		TreeItem<String> placeholderItem = new TreeItem<String> ("");
-		JSONObject json = new JSONObject();
-		JSONArray links = new JSONArray();
-		
-		JSONArray nodes = getConceptsJSONList();
-		OWLClass thing = m_manager.getOWLDataFactory().getOWLThing();
-		printHierarchy(thing, placeholderItem, links);
-		
-		json.put("nodes", nodes);
-		json.put("links", links);
-		FileWriter file = null;
-		try {
-			file = new FileWriter("D:\\Development\\Workspace\\Java\\FLOCI\\src\\com\\handi\\floci\\modules\\display\\data.json");
-			file.write(json.toJSONString());
-		} catch(Exception e) {
-			e.printStackTrace();
-		} finally {
+		exportHierarchy();
+		showHierarchy(hierarchyTree);
+	}
+	
+	// Classifies if needed and prepares the hierarchy for the visualization; may run off the JavaFX thread
+	public Taxonomy exportHierarchy() {
+		Taxonomy taxonomy = getTaxonomy();
+		getHierarchyJson();
+		// Streamed to the file: one link per (class, direct subclass) of the taxonomy, whatever the number of paths to the class
+		if(m_hierarchyExporter != null) {
 			try {
-				file.flush();
-				file.close();
-			} catch (IOException e1) {
-				e1.printStackTrace();
+				m_hierarchyExporter.export(taxonomy, m_ontology.getClassesInSignature());
+			} catch(IOException e) {
+				e.printStackTrace();
 			}
 		}
-		
-		TreeItem<String> rootItem = placeholderItem.getChildren().get(0);
+		return taxonomy;
+	}
+	
+	// The hierarchy document of HierarchyExporter, built in memory once per taxonomy
+	public String getHierarchyJson() {
+		Taxonomy taxonomy = getTaxonomy();
+		if(m_hierarchyJsonTaxonomy != taxonomy) {
+			m_hierarchyJson = HierarchyExporter.toJson(taxonomy, m_ontology.getClassesInSignature());
+			m_hierarchyJsonTaxonomy = taxonomy;
+		}
+		return m_hierarchyJson;
+	}
+	
+	// On the JavaFX thread
+	public void showHierarchy(TreeView<String> hierarchyTree) {
+		// Tree items are created when their parent is expanded
+		TreeItem<String> rootItem = TaxonomyTreeItem.createRoot(getTaxonomy());
 		rootItem.setExpanded(true);
 		hierarchyTree.setRoot(rootItem);
 	}
 	
+	// Where the hierarchy is also written, e.g. for the pages opened outside of the application
+	public void setHierarchyExportPath(Path path) {
+		m_hierarchyExporter = new HierarchyExporter(path);
+	}
+	
 	public void getAllProperties(ListView<OWLObjectProperty> propertiesList) {
 		for (OWLObjectProperty property : m_ontology.getObjectPropertiesInSignature()) {
 			propertiesList.getItems().add(property);
@@ -108,50 +238,74 @@ public class HierarchyGenerator {
 		return individuals;
 	}
 	
-	@SuppressWarnings("unchecked")
-	private void printHierarchy(OWLClass clazz, TreeItem<String> parent, JSONArray links) {
-        if(clazz != null) {
-	    	//Only print satisfiable classes
-	        if (m_reasoner.isSatisfiable(clazz)) {
-	        	// Create the tree node and add it to its parent
-	        	TreeItem<String> clazzItem = new TreeItem<String> (labelFor(clazz));
-	        	parent.getChildren().add(clazzItem);
-	            
-	        	// Find the children and recurse 
-	            for (OWLClass child : m_reasoner.getSubClasses(clazz, true).getFlattened()) { // getFlattened returns the <E> of a Node<E>
-	            	if (!child.equals(clazz)) {
-	            		String label = labelFor(child);
-	            		if(!label.equals("Nothing")) {
-		            		// Create the Json link:
-		    	        	JSONObject link = new JSONObject();
-		    	        	link.put("source", labelFor(clazz));
-		    	        	link.put("target", label);
-		    	        	links.add(link);
-	            		}
-	                    printHierarchy(child, clazzItem, links);
-	                }
-	            }
-	        }
-        }
-    }
-    
-	@SuppressWarnings("unchecked")
-	private JSONArray getConceptsJSONList() {
-		JSONArray nodes = new JSONArray();
-		for (OWLClass clazz: m_ontology.getClassesInSignature()) {
-				JSONObject node = new JSONObject();
-				node.put("name", labelFor(clazz));
-				nodes.add(node);
+	// The satisfiable hierarchy of the ontology, walked once per classification
+	public Taxonomy getTaxonomy() {
+		// Classify ahead of the hierarchy traversal (no-op if already done and nothing changed)
+		m_lifecycle.ensureClassified();
+		int version = m_lifecycle.getHierarchyVersion();
+		if(m_taxonomy == null || m_taxonomyVersion != version) {
+			m_taxonomy = Taxonomy.compute(m_reasoner, m_manager.getOWLDataFactory().getOWLThing());
+			m_taxonomyVersion = version;
+			saveSnapshot();
 		}
-		return nodes;
+		return m_taxonomy;
 	}
 	
-    private String labelFor(OWLClass clazz) {
-    	if(clazz != null)
-    	return clazz.getIRI().getFragment();
-    	
-    	return null;
-    }
+	// Closure of the current taxonomy, built once per taxonomy
+	public TaxonomyIndex getTaxonomyIndex() {
+		Taxonomy taxonomy = getTaxonomy();
+		if(m_taxonomyIndex == null || m_taxonomyIndex.getTaxonomy() != taxonomy) {
+			m_taxonomyIndex = TaxonomyIndex.build(taxonomy);
+		}
+		return m_taxonomyIndex;
+	}
+	
+	// An unchanged ontology that was classified before gets its taxonomy and the types of its individuals back
+	private void restoreSnapshot() {
+		ClassificationSnapshot snapshot = ClassificationSnapshot.load(m_snapshotDirectory, getOntologyHash(),
+				m_manager.getOWLDataFactory());
+		if(snapshot == null) return;
+		m_lifecycle.restoreClassification();
+		m_taxonomy = snapshot.getTaxonomy();
+		m_taxonomyVersion = m_lifecycle.getHierarchyVersion();
+		m_snapshotTypes = snapshot.getTypes();
+	}
+	
+	// Saves the snapshot again with the types realized so far by the fuzzy reasoner; on the thread that uses it
+	public void saveRealizedTypes() {
+		if(m_fuzzyReasoner == null) return;
+		getTaxonomy();
+		saveSnapshot();
+	}
+	
+	// Keyed by the current content: an edited ontology gets its own snapshot
+	private void saveSnapshot() {
+		Map<OWLNamedIndividual, Set<OWLClass>> types = m_fuzzyReasoner != null ? m_fuzzyReasoner.getKnownTypes()
+				: m_snapshotTypes;
+		final ClassificationSnapshot snapshot = new ClassificationSnapshot(getOntologyHash(), m_taxonomy,
+				types == null || types.isEmpty() ? null : types);
+		SNAPSHOT_WRITER.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					snapshot.save(m_snapshotDirectory);
+				} catch(IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+	
+	// Hash of the content of the ontology (OntologyHasher), computed once per version of the ontology
+	public String getOntologyHash() {
+		String hash = m_ontologyHash;
+		if(hash == null) {
+			hash = OntologyHasher.hash(m_ontology);
+			m_ontologyHash = hash;
+		}
+		return hash;
+	}
+
     
     // Getters
     public OWLOntology getOntology() {
@@ -161,11 +315,49 @@ public class HierarchyGenerator {
     	return this.m_manager;
     }
     
-    public Reasoner getReasoner(){
+    public OWLReasoner getReasoner(){
     	return this.m_reasoner;    	
     }
     
+    // Which backend classifies the ontology, and why
+    public ReasonerSelection getReasonerSelection() {
+    	return this.m_reasonerSelection;
+    }
+    
+    // The fuzzy reasoner lives as long as the loaded ontology so its degree cache survives between classifications
+    public SimpleFuzzyReasoner getFuzzyReasoner() {
+    	if(m_fuzzyReasoner == null) {
+    		m_fuzzyReasoner = new SimpleFuzzyReasoner(m_reasoner, m_lifecycle, m_ontology, m_manager,
+    				m_membershipFunctions, TruthDegreeCache.DEFAULT_CAPACITY);
+    		if(m_snapshotTypes != null) m_fuzzyReasoner.restoreTypes(m_snapshotTypes);
+    	}
+    	return this.m_fuzzyReasoner;
+    }
+    
+    // Per-individual reasoning over locality modules, sharing the membership functions of the fuzzy reasoner
+    public ModularFuzzyReasoner getModularReasoner() {
+    	if(m_modularReasoner == null)
+    		m_modularReasoner = new ModularFuzzyReasoner(m_ontology, m_manager, m_membershipFunctions);
+    	return this.m_modularReasoner;
+    }
+    
+    public ReasonerLifecycle getReasonerLifecycle() {
+    	return this.m_lifecycle;
+    }
+    
     public String getOntologyFilePath() {
     	return this.ontologyFilePath;
     }
+    
+    // Once another ontology is opened: the pending save is written, the reasoners and their listeners released
+    public void dispose() {
+    	m_saver.shutdown();
+    	m_saver.awaitSaved();
+    	if(m_modularReasoner != null) m_modularReasoner.dispose();
+    	if(m_fuzzyReasoner != null) m_fuzzyReasoner.dispose();
+    	m_lifecycle.dispose();
+    	m_reasoner.dispose();
+    	m_manager.removeOntologyChangeListener(m_hashListener);
+    	m_manager.removeOntologyChangeListener(m_membershipFunctions);
+    }
 }
@@ -0,0 +1,80 @@
+package com.handi.floci.modules.conceptclassification;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * Immutable set of ordinals, stored in whichever form is smaller: a sorted array (32 bits per member)
+ * for the sparse sets, a bitset (1 bit per ordinal up to the largest) for the dense ones.
+ * In a taxonomy most ancestor sets are sparse and the descendant sets of the upper classes dense.
+ */
+public final class OrdinalSet {
+	public static final OrdinalSet EMPTY = new OrdinalSet(new int[0], null);
+
+	private final int[] members; // sorted, null if bits is used
+	private final BitSet bits;
+
+	private OrdinalSet(int[] members, BitSet bits) {
+		this.members = members;
+		this.bits = bits;
+	}
+
+	public static OrdinalSet of(BitSet set) {
+		int size = set.cardinality();
+		if(size == 0) return EMPTY;
+		if((long) size * 32 <= set.length()) {
+			int[] members = new int[size];
+			int i = 0;
+			for(int ordinal = set.nextSetBit(0); ordinal >= 0; ordinal = set.nextSetBit(ordinal + 1)) {
+				members[i++] = ordinal;
+			}
+			return new OrdinalSet(members, null);
+		}
+		return new OrdinalSet(null, (BitSet) set.clone());
+	}
+
+	public boolean contains(int ordinal) {
+		if(ordinal < 0) return false;
+		return bits != null ? bits.get(ordinal) : Arrays.binarySearch(members, ordinal) >= 0;
+	}
+
+	public int size() {
+		return bits != null ? bits.cardinality() : members.length;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	// In increasing order
+	public int[] toArray() {
+		if(bits == null) return members.clone();
+		int[] array = new int[bits.cardinality()];
+		int i = 0;
+		for(int ordinal = bits.nextSetBit(0); ordinal >= 0; ordinal = bits.nextSetBit(ordinal + 1)) {
+			array[i++] = ordinal;
+		}
+		return array;
+	}
+
+	// A copy the caller may modify
+	public BitSet toBitSet() {
+		if(bits != null) return (BitSet) bits.clone();
+		BitSet set = new BitSet();
+		for(int ordinal : members) {
+			set.set(ordinal);
+		}
+		return set;
+	}
+
+	// Adds the members to the set, without copying this one
+	public void addTo(BitSet set) {
+		if(bits != null) {
+			set.or(bits);
+		} else {
+			for(int ordinal : members) {
+				set.set(ordinal);
+			}
+		}
+	}
+}
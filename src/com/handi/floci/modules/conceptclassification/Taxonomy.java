@@ -0,0 +1,107 @@
+package com.handi.floci.modules.conceptclassification;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/*
+ * The satisfiable part of the class hierarchy computed by the reasoner, walked once from owl:Thing.
+ * A class shared by several parents is visited once: its direct subclasses are asked to the reasoner
+ * once and its children list is shared by all the paths that lead to it.
+ */
+public class Taxonomy {
+	private final OWLClass top;
+	private final List<OWLClass> classes;
+	private final Map<OWLClass, List<OWLClass>> children;
+	private final Set<OWLClass> unsatisfiable;
+
+	private Taxonomy(OWLClass top, List<OWLClass> classes, Map<OWLClass, List<OWLClass>> children,
+			Set<OWLClass> unsatisfiable) {
+		this.top = top;
+		this.classes = Collections.unmodifiableList(classes);
+		this.children = children;
+		this.unsatisfiable = Collections.unmodifiableSet(unsatisfiable);
+	}
+
+	// The reasoner must be classified
+	public static Taxonomy compute(OWLReasoner reasoner, OWLClass top) {
+		// The unsatisfiable classes are the equivalents of owl:Nothing
+		Set<OWLClass> unsatisfiable = new HashSet<OWLClass>(reasoner.getUnsatisfiableClasses().getEntities());
+		List<OWLClass> classes = new ArrayList<OWLClass>();
+		Map<OWLClass, List<OWLClass>> children = new HashMap<OWLClass, List<OWLClass>>();
+		if(unsatisfiable.contains(top)) return new Taxonomy(top, classes, children, unsatisfiable);
+
+		// Breadth first, every class once
+		Queue<OWLClass> queue = new ArrayDeque<OWLClass>();
+		queue.add(top);
+		children.put(top, null);
+		while(!queue.isEmpty()) {
+			OWLClass clazz = queue.poll();
+			classes.add(clazz);
+			List<OWLClass> direct = new ArrayList<OWLClass>();
+			for(OWLClass child : reasoner.getSubClasses(clazz, true).getFlattened()) {
+				if(child.equals(clazz) || unsatisfiable.contains(child)) continue;
+				direct.add(child);
+				if(!children.containsKey(child)) {
+					children.put(child, null); // queued
+					queue.add(child);
+				}
+			}
+			children.put(clazz, Collections.unmodifiableList(direct));
+		}
+		return new Taxonomy(top, classes, children, unsatisfiable);
+	}
+
+	// A taxonomy computed earlier, e.g. read back from a snapshot; the classes are given in the order of getClasses
+	public static Taxonomy restore(OWLClass top, List<OWLClass> classes, Map<OWLClass, List<OWLClass>> children,
+			Set<OWLClass> unsatisfiable) {
+		Map<OWLClass, List<OWLClass>> lists = new HashMap<OWLClass, List<OWLClass>>();
+		for(OWLClass clazz : classes) {
+			List<OWLClass> direct = children.get(clazz);
+			lists.put(clazz, direct == null ? Collections.<OWLClass>emptyList()
+					: Collections.unmodifiableList(new ArrayList<OWLClass>(direct)));
+		}
+		return new Taxonomy(top, new ArrayList<OWLClass>(classes), lists, new HashSet<OWLClass>(unsatisfiable));
+	}
+
+	public OWLClass getTop() {
+		return top;
+	}
+
+	// The satisfiable classes reached from the top, each once, breadth first: a class shared by several parents
+	// may come before one of them (TaxonomyIndex numbers them in a topological order)
+	public List<OWLClass> getClasses() {
+		return classes;
+	}
+
+	// Direct satisfiable subclasses; empty for a class outside the taxonomy
+	public List<OWLClass> getChildren(OWLClass clazz) {
+		List<OWLClass> list = children.get(clazz);
+		return list == null ? Collections.<OWLClass>emptyList() : list;
+	}
+
+	public boolean contains(OWLClass clazz) {
+		return children.containsKey(clazz);
+	}
+
+	public boolean isSatisfiable(OWLClass clazz) {
+		return !unsatisfiable.contains(clazz);
+	}
+
+	public Set<OWLClass> getUnsatisfiableClasses() {
+		return unsatisfiable;
+	}
+
+	public int size() {
+		return classes.size();
+	}
+}
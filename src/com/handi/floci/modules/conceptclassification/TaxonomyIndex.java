@@ -0,0 +1,182 @@
+package com.handi.floci.modules.conceptclassification;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.semanticweb.owlapi.model.OWLClass;
+
+/*
+ * The transitive closure of a taxonomy, built once per classification: the strict ancestors and
+ * descendants of every class as OrdinalSets, and the direct parents and children as arrays.
+ * Subsumption is then a set lookup, and the hierarchy queries never go back to the reasoner.
+ * Ordinals follow a topological order of the taxonomy: a class comes after all of its parents.
+ */
+public class TaxonomyIndex {
+	private final Taxonomy taxonomy;
+	private final OWLClass[] classes;
+	private final Map<OWLClass, Integer> ordinals;
+	private final int[][] parents;
+	private final int[][] children;
+	private final OrdinalSet[] ancestors;
+	private final OrdinalSet[] descendants;
+
+	private TaxonomyIndex(Taxonomy taxonomy, OWLClass[] classes, Map<OWLClass, Integer> ordinals, int[][] parents,
+			int[][] children, OrdinalSet[] ancestors, OrdinalSet[] descendants) {
+		this.taxonomy = taxonomy;
+		this.classes = classes;
+		this.ordinals = ordinals;
+		this.parents = parents;
+		this.children = children;
+		this.ancestors = ancestors;
+		this.descendants = descendants;
+	}
+
+	public static TaxonomyIndex build(Taxonomy taxonomy) {
+		List<OWLClass> breadthFirst = taxonomy.getClasses();
+		int size = breadthFirst.size();
+
+		// Kahn: a class is numbered once all of its parents are
+		Map<OWLClass, Integer> parentCounts = new HashMap<OWLClass, Integer>();
+		for(OWLClass clazz : breadthFirst) {
+			for(OWLClass child : taxonomy.getChildren(clazz)) {
+				Integer count = parentCounts.get(child);
+				parentCounts.put(child, count == null ? 1 : count + 1);
+			}
+		}
+		OWLClass[] classes = new OWLClass[size];
+		Map<OWLClass, Integer> ordinals = new HashMap<OWLClass, Integer>();
+		Queue<OWLClass> ready = new ArrayDeque<OWLClass>();
+		for(OWLClass clazz : breadthFirst) {
+			if(!parentCounts.containsKey(clazz)) ready.add(clazz);
+		}
+		while(!ready.isEmpty()) {
+			OWLClass clazz = ready.poll();
+			ordinals.put(clazz, ordinals.size());
+			classes[ordinals.size() - 1] = clazz;
+			for(OWLClass child : taxonomy.getChildren(clazz)) {
+				int count = parentCounts.get(child) - 1;
+				parentCounts.put(child, count);
+				if(count == 0) ready.add(child);
+			}
+		}
+
+		int[][] children = new int[size][];
+		List<List<Integer>> parentLists = new ArrayList<List<Integer>>(size);
+		for(int i = 0; i < size; i++) {
+			parentLists.add(new ArrayList<Integer>(1));
+		}
+		for(int i = 0; i < size; i++) {
+			List<OWLClass> direct = taxonomy.getChildren(classes[i]);
+			children[i] = new int[direct.size()];
+			for(int j = 0; j < children[i].length; j++) {
+				children[i][j] = ordinals.get(direct.get(j));
+				parentLists.get(children[i][j]).add(i);
+			}
+		}
+		int[][] parents = new int[size][];
+		for(int i = 0; i < size; i++) {
+			List<Integer> list = parentLists.get(i);
+			parents[i] = new int[list.size()];
+			for(int j = 0; j < parents[i].length; j++) {
+				parents[i][j] = list.get(j);
+			}
+		}
+
+		// Parents are numbered first: their ancestors are known when a class is reached, and conversely
+		OrdinalSet[] ancestors = new OrdinalSet[size];
+		for(int i = 0; i < size; i++) {
+			BitSet set = new BitSet();
+			for(int parent : parents[i]) {
+				set.set(parent);
+				ancestors[parent].addTo(set);
+			}
+			ancestors[i] = OrdinalSet.of(set);
+		}
+		OrdinalSet[] descendants = new OrdinalSet[size];
+		for(int i = size - 1; i >= 0; i--) {
+			BitSet set = new BitSet();
+			for(int child : children[i]) {
+				set.set(child);
+				descendants[child].addTo(set);
+			}
+			descendants[i] = OrdinalSet.of(set);
+		}
+		return new TaxonomyIndex(taxonomy, classes, ordinals, parents, children, ancestors, descendants);
+	}
+
+	public Taxonomy getTaxonomy() {
+		return taxonomy;
+	}
+
+	public int size() {
+		return classes.length;
+	}
+
+	// -1 for a class outside the taxonomy (unsatisfiable, or not reached from the top)
+	public int getOrdinal(OWLClass clazz) {
+		Integer ordinal = ordinals.get(clazz);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	public OWLClass getClass(int ordinal) {
+		return classes[ordinal];
+	}
+
+	// Direct children; the array is shared and must not be modified
+	public int[] getChildren(int ordinal) {
+		return children[ordinal];
+	}
+
+	// Direct parents; the array is shared and must not be modified
+	public int[] getParents(int ordinal) {
+		return parents[ordinal];
+	}
+
+	// Strict ancestors
+	public OrdinalSet getAncestors(int ordinal) {
+		return ancestors[ordinal];
+	}
+
+	// Strict descendants
+	public OrdinalSet getDescendants(int ordinal) {
+		return descendants[ordinal];
+	}
+
+	public boolean isSubClassOf(int sub, int sup) {
+		return sub == sup || ancestors[sub].contains(sup);
+	}
+
+	public boolean isSubClassOf(OWLClass sub, OWLClass sup) {
+		int subOrdinal = getOrdinal(sub);
+		int supOrdinal = getOrdinal(sup);
+		return subOrdinal >= 0 && supOrdinal >= 0 && isSubClassOf(subOrdinal, supOrdinal);
+	}
+
+	// The most specific common ancestors of two classes (a class being its own ancestor here)
+	public int[] getLowestCommonAncestors(int a, int b) {
+		BitSet common = ancestors[a].toBitSet();
+		common.set(a);
+		BitSet ofB = ancestors[b].toBitSet();
+		ofB.set(b);
+		common.and(ofB);
+
+		// A common ancestor is lowest if none of its children is a common ancestor
+		BitSet lowest = new BitSet();
+		for(int ordinal = common.nextSetBit(0); ordinal >= 0; ordinal = common.nextSetBit(ordinal + 1)) {
+			boolean isLowest = true;
+			for(int child : children[ordinal]) {
+				if(common.get(child)) {
+					isLowest = false;
+					break;
+				}
+			}
+			if(isLowest) lowest.set(ordinal);
+		}
+		return OrdinalSet.of(lowest).toArray();
+	}
+}
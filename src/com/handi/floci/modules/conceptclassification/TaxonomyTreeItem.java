@@ -0,0 +1,110 @@
+package com.handi.floci.modules.conceptclassification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import org.semanticweb.owlapi.model.OWLClass;
+
+/*
+ * Tree item of a class of the taxonomy whose children are only created when the tree asks for them,
+ * i.e. when the item is expanded. A class with several parents gets one item per path, all reading
+ * the same children list of the taxonomy.
+ * The number of populated items is bounded: the children of the least recently used collapsed items
+ * are released, and created again if they are expanded again.
+ */
+public class TaxonomyTreeItem extends TreeItem<String> {
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private final Taxonomy taxonomy;
+	private final OWLClass clazz;
+	private final PopulatedItems populatedItems;
+	private boolean populated = false;
+
+	private TaxonomyTreeItem(Taxonomy taxonomy, OWLClass clazz, PopulatedItems populatedItems) {
+		super(clazz.getIRI().getFragment());
+		this.taxonomy = taxonomy;
+		this.clazz = clazz;
+		this.populatedItems = populatedItems;
+		expandedProperty().addListener(new ChangeListener<Boolean>() {
+			@Override
+			public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
+				if(populated) TaxonomyTreeItem.this.populatedItems.touch(TaxonomyTreeItem.this);
+			}
+		});
+	}
+
+	public static TaxonomyTreeItem createRoot(Taxonomy taxonomy) {
+		return createRoot(taxonomy, DEFAULT_CACHE_SIZE);
+	}
+
+	public static TaxonomyTreeItem createRoot(Taxonomy taxonomy, int cacheSize) {
+		return new TaxonomyTreeItem(taxonomy, taxonomy.getTop(), new PopulatedItems(cacheSize));
+	}
+
+	public OWLClass getOWLClass() {
+		return clazz;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		return taxonomy.getChildren(clazz).isEmpty();
+	}
+
+	@Override
+	public ObservableList<TreeItem<String>> getChildren() {
+		if(!populated) {
+			populated = true;
+			List<TreeItem<String>> items = new ArrayList<TreeItem<String>>();
+			for(OWLClass child : taxonomy.getChildren(clazz)) {
+				items.add(new TaxonomyTreeItem(taxonomy, child, populatedItems));
+			}
+			super.getChildren().setAll(items);
+			populatedItems.touch(this);
+		}
+		return super.getChildren();
+	}
+
+	// Drops the children, and the populated items below them from populatedItems; getChildren creates them again
+	private void release() {
+		populated = false;
+		for(TreeItem<String> child : super.getChildren()) {
+			TaxonomyTreeItem item = (TaxonomyTreeItem) child;
+			if(item.populated) {
+				populatedItems.remove(item);
+				item.release();
+			}
+		}
+		super.getChildren().clear();
+	}
+
+	// The populated items of one tree, least recently used first
+	private static class PopulatedItems extends LinkedHashMap<TaxonomyTreeItem, Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		PopulatedItems(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		void touch(TaxonomyTreeItem item) {
+			put(item, Boolean.TRUE);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<TaxonomyTreeItem, Boolean> eldest) {
+			if(size() <= capacity) return false;
+			TaxonomyTreeItem item = eldest.getKey();
+			// Visible children are kept: the item is tracked again when it is collapsed
+			if(!item.isExpanded()) item.release();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.handi.floci.modules.display;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import netscape.javascript.JSObject;
+
+import org.json.simple.JSONObject;
+
+/*
+ * Hands the hierarchy and the membership degrees to the visualization page loaded in the WebView,
+ * in memory, through the flociBridge object the page defines (js/dag.js), instead of through files
+ * read by the page when it is loaded again.
+ * The hierarchy is sent once per page load; the degrees are sent as the changes since the last ones
+ * sent, so that classifying an individual only recolors the nodes whose degree changed.
+ * What was sent is kept and sent again when a page is loaded. On the JavaFX thread only.
+ */
+public class WebViewBridge {
+	private final WebEngine engine;
+	private JSObject bridge; // null until a page defining flociBridge is loaded
+
+	private String hierarchy;
+	private final Map<String, Double> degrees = new HashMap<String, Double>();
+
+	public WebViewBridge(WebEngine engine) {
+		this.engine = engine;
+		engine.getLoadWorker().stateProperty().addListener(new ChangeListener<Worker.State>() {
+			@Override
+			public void changed(ObservableValue<? extends Worker.State> observable, Worker.State oldState, Worker.State newState) {
+				if(newState == Worker.State.SUCCEEDED) attach();
+				else if(newState == Worker.State.SCHEDULED) bridge = null;
+			}
+		});
+	}
+
+	// The hierarchy document of HierarchyExporter; the degrees shown belong to the previous one
+	public void showHierarchy(String hierarchyJson) {
+		hierarchy = hierarchyJson;
+		degrees.clear();
+		if(bridge != null) bridge.call("setHierarchy", hierarchy);
+	}
+
+	// Degree of each class by name; only the ones that changed are sent, a class no longer given is cleared
+	public void showDegrees(Map<String, Double> newDegrees) {
+		Map<String, Double> changes = new HashMap<String, Double>();
+		for(Map.Entry<String, Double> degree : newDegrees.entrySet()) {
+			if(!degree.getValue().equals(degrees.get(degree.getKey()))) changes.put(degree.getKey(), degree.getValue());
+		}
+		for(String name : degrees.keySet()) {
+			if(!newDegrees.containsKey(name)) changes.put(name, null);
+		}
+		degrees.clear();
+		degrees.putAll(newDegrees);
+		send(changes);
+	}
+
+	public void clearDegrees() {
+		degrees.clear();
+		if(bridge != null) bridge.call("clearDegrees");
+	}
+
+	// Whether the page shown can receive the data
+	public boolean isAttached() {
+		return bridge != null;
+	}
+
+	private void attach() {
+		Object defined = engine.executeScript("typeof flociBridge !== 'undefined'");
+		if(!Boolean.TRUE.equals(defined)) {
+			bridge = null; // e.g. the home page
+			return;
+		}
+		bridge = (JSObject) engine.executeScript("flociBridge");
+		if(hierarchy != null) {
+			bridge.call("setHierarchy", hierarchy);
+			send(degrees);
+		}
+	}
+
+	private void send(Map<String, Double> changes) {
+		if(bridge == null || changes.isEmpty()) return;
+		bridge.call("updateDegrees", JSONObject.toJSONString(changes));
+	}
+}
@@ -1,7 +1,25 @@
 
+// Called by the application through the WebView (WebViewBridge): the hierarchy once per page load,
+// then only the degrees that changed, without loading the page again
+window.flociBridge = {
+	setHierarchy: function(hierarchy) {
+		var data = JSON.parse(hierarchy);
+		d3.select(document.body).selectAll("svg").remove();
+		window.dag = new FLOCIDAG(document.body, data.nodes, data.links, []);
+	},
+	updateDegrees: function(changes) {
+		if(window.dag) window.dag.updateMembershipDegrees(JSON.parse(changes));
+	},
+	clearDegrees: function() {
+		if(window.dag) window.dag.clearMembershipDegrees();
+	}
+};
 
+// Opened outside of the application: the hierarchy and the degrees are read from their files
 window.onload = function() {    
+	if(window.dag) return;
 	d3.json("data.json", function(error, json) {
+	if(error || window.dag) return;
 	var data = json;
 	var nodes = data.nodes,
 		links = data.links;
@@ -9,7 +27,7 @@ window.onload = function() {
 	window.dag = new FLOCIDAG(document.body, nodes, links, []);
 
 	d3.json("degrees.json", function(error, degrees) {
-		window.dag.drawMembershipDegree(degrees);
+		if(!error && degrees) window.dag.drawMembershipDegree(degrees);
 	});
 
 	});
@@ -227,7 +227,27 @@ function FLOCIDAG(attachPoint, nodes, links, /*optional*/ params) {
             d.degree = degrees_map[d.id];
         });
 
-        // depending on the memebership degree add class
+        showDegree(nodes);
+    }
+
+    // Only the nodes named in changes (name -> degree, null to clear) are redrawn
+    this.updateMembershipDegrees = function(changes) {
+        var nodes = graphSVG.selectAll(".node").filter(function(d) { return changes.hasOwnProperty(d.id); });
+        nodes.each(function(d) {
+            if(changes[d.id] === null) delete d.degree;
+            else d.degree = changes[d.id];
+        });
+        showDegree(nodes);
+    }
+
+    this.clearMembershipDegrees = function() {
+        var nodes = graphSVG.selectAll(".node").filter(function(d) { return d.degree !== undefined; });
+        nodes.each(function(d) { delete d.degree; });
+        showDegree(nodes);
+    }
+
+    // depending on the memebership degree add class, and the degree text (none without a degree)
+    var showDegree = function(nodes) {
         nodes.classed("degree00", function(d) { return (d.degree <= 0.0); });
         nodes.classed("degree01", function(d) { return (d.degree >= 0.0 && d.degree < 0.1); });
         nodes.classed("degree02", function(d) { return (d.degree >= 0.1 && d.degree < 0.2); });
@@ -241,7 +261,8 @@ function FLOCIDAG(attachPoint, nodes, links, /*optional*/ params) {
         nodes.classed("degree10", function(d) { return (d.degree >= 0.9 && d.degree <= 1.0); });
         nodes.classed("degreeP", function(d) { return (d.degree > 1.0); });
 
-        nodes.append("text")
+        nodes.selectAll("text.degree").remove();
+        nodes.filter(function(d) { return d.degree !== undefined; }).append("text")
               .attr("class", "degree")
               .attr("x", 0)
               .attr("dy", 5)
@@ -63,6 +63,7 @@ var sanitizeReports = function(reports) {
 
 var createGraphFromData = function(nodes, edges) {
     console.log("Creating graph from data");
+    if(nodes.length > 0 && typeof nodes[0] === "string") return createGraphFromCompactData(nodes, edges);
 
     /* the data here is composed of nodes and edges, so it has to be converted to a Graph object composed of nodes each one references its children and parents
     so you have to get for each node its parents/children, this implise to transform the edges array to a map to facilitate the lookup */
@@ -112,6 +113,28 @@ var createGraphFromData = function(nodes, edges) {
     return graph;
 }
 
+/* compact data: nodes is an array of names, the index of a name being the node id,
+and edges a flat array of (source, target) pairs of node ids */
+var createGraphFromCompactData = function(names, edges) {
+    var graph_nodes = names.map(function(name) {
+        var node = new Node(name);
+        node.node = { "name": name };
+        return node;
+    });
+
+    for (var i = 0; i + 1 < edges.length; i += 2) {
+        var parent = graph_nodes[edges[i]], child = graph_nodes[edges[i + 1]];
+        parent.addChild(child);
+        child.addParent(parent);
+    }
+
+    var graph = new Graph();
+    graph_nodes.forEach(function(node) {
+        graph.addNode(node);
+    });
+    return graph;
+}
+
 var createJSONFromVisibleGraph = function(graph) {
     var nodes = graph.getVisibleNodes();
     var reports = [];
@@ -0,0 +1,187 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLNaryBooleanClassExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLQuantifiedDataRestriction;
+
+/*
+ * Alpha-cut retrieval: the individuals whose degree in a class expression is >= alpha.
+ * Candidates are collected from range scans of the sorted data values (each fuzzy datatype inverted
+ * into the interval of its alpha-cut), and from the crisp instances of a named class only when its
+ * definitions do not bound them already; then only the candidates are evaluated by the SimpleFuzzyReasoner.
+ * Expressions that bound nothing (complements, cardinalities, all values restrictions alone) are checked
+ * on every individual.
+ */
+public class AlphaCutRetriever {
+	private final SimpleFuzzyReasoner fuzzyReasoner;
+	private final OWLOntology ontology;
+
+	public AlphaCutRetriever(SimpleFuzzyReasoner fuzzyReasoner, OWLOntology ontology) {
+		this.fuzzyReasoner = fuzzyReasoner;
+		this.ontology = ontology;
+	}
+
+	// Individuals of the class expression with their degree, for the degrees >= alpha
+	public Map<OWLNamedIndividual, Double> getInstances(OWLClassExpression clazz, double alpha) {
+		fuzzyReasoner.getCrispLifecycle().ensureClassified();
+		Map<OWLNamedIndividual, Double> instances = new HashMap<OWLNamedIndividual, Double>();
+		if(alpha > 1) return instances;
+
+		Candidates candidates = alpha > 0 ? getCandidates(clazz, alpha, new HashSet<OWLClass>()) : Candidates.ALL;
+		for(OWLNamedIndividual individu : candidates.toSet(ontology)) {
+			double degree = clazz.isAnonymous() ? fuzzyReasoner.calculateTruthDegree(clazz, individu)
+					: fuzzyReasoner.calculateClassDegree(clazz.asOWLClass(), individu);
+			if(degree >= alpha) instances.put(individu, degree);
+		}
+		return instances;
+	}
+
+	// Superset of the individuals whose degree in the expression may be >= alpha, alpha > 0
+	private Candidates getCandidates(OWLClassExpression clazz, double alpha, Set<OWLClass> expanding) {
+		switch(clazz.getClassExpressionType()) {
+			case OWL_CLASS:
+				// A named class has a non zero degree only for its crisp instances, within its definitions
+				OWLClass namedClass = clazz.asOWLClass();
+				if(!expanding.add(namedClass)) return Candidates.ALL;
+				Candidates definitions = Candidates.ALL;
+				for(OWLClassExpression equivalent : namedClass.getEquivalentClasses(ontology)) {
+					definitions = definitions.intersect(getCandidates(equivalent, alpha, expanding));
+				}
+				expanding.remove(namedClass);
+				// Bounded by its definitions: no need to retrieve all the crisp instances from the reasoner
+				if(definitions.individuals != null) return definitions;
+				return new Candidates(new HashSet<OWLNamedIndividual>(
+						fuzzyReasoner.getCrispReasoner().getInstances(namedClass, false).getFlattened())).intersect(definitions);
+
+			case OBJECT_INTERSECTION_OF:
+				Candidates intersection = Candidates.ALL;
+				for(OWLClassExpression operand : ((OWLNaryBooleanClassExpression) clazz).getOperands()) {
+					intersection = intersection.intersect(getCandidates(operand, alpha, expanding));
+				}
+				return intersection;
+
+			case OBJECT_UNION_OF:
+				Set<OWLNamedIndividual> union = new HashSet<OWLNamedIndividual>();
+				for(OWLClassExpression operand : ((OWLNaryBooleanClassExpression) clazz).getOperands()) {
+					Candidates candidates = getCandidates(operand, alpha, expanding);
+					if(candidates.individuals == null) return Candidates.ALL;
+					union.addAll(candidates.toSet(ontology));
+				}
+				return new Candidates(union);
+
+			case DATA_SOME_VALUES_FROM:
+			case DATA_ALL_VALUES_FROM:
+				return getDataCandidates((OWLQuantifiedDataRestriction) clazz, alpha);
+
+			default: // complements, cardinalities and crisp restrictions are checked on every individual
+				return Candidates.ALL;
+		}
+	}
+
+	/*
+	 * The degree of an individual in such a restriction on a fuzzy datatype is the minimum degree of its values.
+	 * Without any value, it is 0 for a some values restriction, so its candidates are only the individuals
+	 * with a value in the alpha-cut; it is 1 for an all values restriction, whose candidates are these
+	 * individuals and the individuals without any value for the property.
+	 */
+	private Candidates getDataCandidates(OWLQuantifiedDataRestriction restriction, double alpha) {
+		OWLDataRange filler = restriction.getFiller();
+		if(!filler.isDatatype() || restriction.getProperty().isAnonymous()) return Candidates.ALL;
+		MembershipFunction function = fuzzyReasoner.getMembershipFunctions().get(filler.asOWLDatatype());
+		if(function == null) return Candidates.ALL;
+
+		SortedDataValues sortedValues = fuzzyReasoner.getDataValueIndex().getSortedValues(
+				restriction.getProperty().asOWLDataProperty());
+		double[] cut = function.getAlphaCut(alpha);
+		Set<OWLNamedIndividual> inCut = cut == null ? new HashSet<OWLNamedIndividual>()
+				: sortedValues.getIndividuals(cut[0], cut[1]);
+		if(restriction.getClassExpressionType() == ClassExpressionType.DATA_SOME_VALUES_FROM) return new Candidates(inCut);
+		return new Candidates(null, new DataFilter(inCut, sortedValues.getOwners()));
+	}
+
+	// Individuals with a value in the alpha-cut, or without any value (all values restrictions)
+	private static class DataFilter {
+		private final Set<OWLNamedIndividual> inCut;
+		private final Set<OWLNamedIndividual> owners;
+
+		DataFilter(Set<OWLNamedIndividual> inCut, Set<OWLNamedIndividual> owners) {
+			this.inCut = inCut;
+			this.owners = owners;
+		}
+
+		boolean accepts(OWLNamedIndividual individu) {
+			return inCut.contains(individu) || !owners.contains(individu);
+		}
+	}
+
+	/*
+	 * The individuals of a set (all the individuals if null) accepted by every filter.
+	 * Filters are only applied to enumerate the candidates, so an intersection with a small set stays small.
+	 */
+	private static class Candidates {
+		static final Candidates ALL = new Candidates(null);
+
+		final Set<OWLNamedIndividual> individuals;
+		final List<DataFilter> filters;
+
+		Candidates(Set<OWLNamedIndividual> individuals) {
+			this(individuals, Collections.<DataFilter>emptyList());
+		}
+
+		Candidates(Set<OWLNamedIndividual> individuals, DataFilter filter) {
+			this(individuals, Collections.singletonList(filter));
+		}
+
+		private Candidates(Set<OWLNamedIndividual> individuals, List<DataFilter> filters) {
+			this.individuals = individuals;
+			this.filters = filters;
+		}
+
+		Candidates intersect(Candidates other) {
+			List<DataFilter> allFilters = new ArrayList<DataFilter>(filters);
+			allFilters.addAll(other.filters);
+			Set<OWLNamedIndividual> set;
+			if(individuals == null) set = other.individuals;
+			else if(other.individuals == null) set = individuals;
+			else {
+				Set<OWLNamedIndividual> smaller = individuals.size() <= other.individuals.size() ? individuals : other.individuals;
+				Set<OWLNamedIndividual> larger = smaller == individuals ? other.individuals : individuals;
+				set = new HashSet<OWLNamedIndividual>();
+				for(OWLNamedIndividual individu : smaller) {
+					if(larger.contains(individu)) set.add(individu);
+				}
+			}
+			return new Candidates(set, allFilters);
+		}
+
+		Set<OWLNamedIndividual> toSet(OWLOntology ontology) {
+			Set<OWLNamedIndividual> set = individuals == null ? ontology.getIndividualsInSignature(true) : individuals;
+			if(filters.isEmpty()) return set;
+			Set<OWLNamedIndividual> accepted = new HashSet<OWLNamedIndividual>();
+			for(OWLNamedIndividual individu : set) {
+				boolean accept = true;
+				for(DataFilter filter : filters) {
+					if(!filter.accepts(individu)) {
+						accept = false;
+						break;
+					}
+				}
+				if(accept) accepted.add(individu);
+			}
+			return accepted;
+		}
+	}
+}
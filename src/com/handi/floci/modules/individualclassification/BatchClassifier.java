@@ -0,0 +1,198 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLQuantifiedDataRestriction;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import com.handi.floci.modules.reasoning.HermiTBackend;
+import com.handi.floci.modules.reasoning.ReasonerLifecycle;
+import com.handi.floci.modules.reasoning.ReasonerSelection;
+import com.handi.floci.modules.reasoning.SymbolTable;
+
+/*
+ * Classifies many individuals at once, on all the cores.
+ * The snapshot of the ontology is classified and realized once, by the backend ReasonerSelection picks;
+ * the workers share these types and its indexes, and are never classified. HermiT is not thread safe,
+ * so every worker owns its own HermiT (and SimpleFuzzyReasoner), used for the anonymous expressions only.
+ */
+public class BatchClassifier {
+	private static final int CHUNK_SIZE = 64;
+	private static final int WORKER_CACHE_CAPACITY = 10000;
+
+	private final OWLOntology snapshot;
+	private final SymbolTable symbols;
+	private final DataValueIndex dataValues;
+	private final MembershipFunctionRegistry membershipFunctions;
+	private final OWLReasoner primary;
+	private final List<Reasoner> reasoners = new ArrayList<Reasoner>();
+	private final BlockingQueue<SimpleFuzzyReasoner> workers;
+	private final ExecutorService executor;
+	private final AtomicInteger classified = new AtomicInteger();
+
+	public BatchClassifier(OWLOntology ontology) throws OWLOntologyCreationException {
+		this(ontology, Runtime.getRuntime().availableProcessors());
+	}
+
+	public BatchClassifier(OWLOntology ontology, int threads) throws OWLOntologyCreationException {
+		// Read-only copy of the imports closure: edits made meanwhile in the UI do not reach the workers
+		OWLOntologyManager snapshotManager = OWLManager.createOWLOntologyManager();
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			axioms.addAll(ont.getAxioms());
+		}
+		snapshot = snapshotManager.createOntology(axioms, ontology.getOntologyID().getOntologyIRI());
+
+		// The OWL API builds its indexes lazily: build them here, before the workers read them concurrently
+		for(OWLClass clazz : snapshot.getClassesInSignature()) {
+			clazz.getEquivalentClasses(snapshot);
+		}
+		dataValues = new DataValueIndex(snapshot);
+		membershipFunctions = new MembershipFunctionRegistry(snapshot,
+				SimpleFuzzyReasoner.getFuzzyLabelProperty(snapshot, snapshotManager));
+
+		// Classified and realized once; the read-only results are handed to every worker
+		primary = ReasonerSelection.select(snapshot).getReasoner();
+		primary.precomputeInferences(InferenceType.CLASS_HIERARCHY, InferenceType.CLASS_ASSERTIONS);
+		Map<OWLNamedIndividual, Set<OWLClass>> types = new HashMap<OWLNamedIndividual, Set<OWLClass>>();
+		for(OWLNamedIndividual individu : snapshot.getIndividualsInSignature()) {
+			types.put(individu, Collections.unmodifiableSet(primary.getTypes(individu, false).getFlattened()));
+		}
+		types = Collections.unmodifiableMap(types);
+
+		// One HermiT per worker, created sequentially since creating one reads the ontology
+		workers = new ArrayBlockingQueue<SimpleFuzzyReasoner>(threads);
+		SymbolTable workerSymbols = null;
+		for(int i = 0; i < threads; i++) {
+			Reasoner reasoner = HermiTBackend.create(snapshot);
+			reasoners.add(reasoner);
+			ReasonerLifecycle lifecycle = new ReasonerLifecycle(reasoner, snapshotManager);
+			// The hierarchy and the types are those of the primary reasoner: the worker classifies nothing
+			lifecycle.restoreClassification();
+			SimpleFuzzyReasoner worker = new SimpleFuzzyReasoner(reasoner, lifecycle,
+					snapshot, snapshotManager, dataValues, membershipFunctions, WORKER_CACHE_CAPACITY);
+			worker.restoreTypes(types);
+			// Every worker assigns the same ordinals, since they are given in IRI order
+			workerSymbols = worker.getSymbolTable();
+			workers.add(worker);
+		}
+		symbols = workerSymbols;
+
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "floci-batch-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public DegreeMatrix classifyAll() throws InterruptedException, ExecutionException {
+		// Rows in the order of the individual ordinals
+		return classify(symbols.getIndividuals());
+	}
+
+	public DegreeMatrix classify(List<OWLNamedIndividual> individuals) throws InterruptedException, ExecutionException {
+		final DegreeMatrix matrix = new DegreeMatrix(individuals, symbols);
+		classified.set(0);
+
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int start = 0; start < individuals.size(); start += CHUNK_SIZE) {
+			final int from = start;
+			final int to = Math.min(start + CHUNK_SIZE, individuals.size());
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					// Borrow a free worker: a reasoner is only ever used by one thread at a time
+					SimpleFuzzyReasoner worker = workers.take();
+					try {
+						for(int row = from; row < to; row++) {
+							OWLNamedIndividual individu = matrix.getIndividuals().get(row);
+							double[] classDegrees = worker.calculateClassDegrees(individu);
+							float[] degrees = new float[classDegrees.length];
+							for(int column = 0; column < degrees.length; column++) {
+								degrees[column] = (float) classDegrees[column];
+							}
+							matrix.setRow(row, degrees);
+							classified.incrementAndGet();
+						}
+					} finally {
+						workers.put(worker);
+					}
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		} catch(InterruptedException e) {
+			for(Future<Void> future : futures) future.cancel(true);
+			throw e;
+		}
+		return matrix;
+	}
+
+	/*
+	 * Degree of every individual of the list in a restriction on a fuzzy datatype, in the order of the list,
+	 * computed over the whole value column in one pass. Null if the filler is not a fuzzy datatype.
+	 */
+	public double[] getRestrictionDegrees(OWLQuantifiedDataRestriction restriction, List<OWLNamedIndividual> individuals) {
+		if(restriction.getProperty().isAnonymous() || !restriction.getFiller().isDatatype()) return null;
+		MembershipFunction function = membershipFunctions.get(restriction.getFiller().asOWLDatatype());
+		if(function == null) return null;
+
+		DataColumn column = dataValues.getColumn(restriction.getProperty().asOWLDataProperty(), individuals);
+		switch(restriction.getClassExpressionType()) {
+			case DATA_SOME_VALUES_FROM: return column.getSomeValuesDegrees(function);
+			case DATA_ALL_VALUES_FROM: return column.getAllValuesDegrees(function);
+			default: return null;
+		}
+	}
+
+	// Number of individuals classified by the current (or last) batch
+	public int getClassifiedCount() {
+		return classified.get();
+	}
+
+	public SymbolTable getSymbolTable() {
+		return symbols;
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+		primary.dispose();
+		for(Reasoner reasoner : reasoners) {
+			reasoner.dispose();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/*
+ * The values of one data property for a list of individuals, in one flat array:
+ * the values of the i-th individual are values[offsets[i] .. offsets[i+1]-1].
+ * A fuzzy datatype is evaluated over the whole column in a single loop.
+ */
+public class DataColumn {
+	private final OWLDataProperty dataProperty;
+	private final List<OWLNamedIndividual> individuals;
+	private final int[] offsets;
+	private final double[] values;
+
+	DataColumn(OWLDataProperty dataProperty, List<OWLNamedIndividual> individuals, int[] offsets, double[] values) {
+		this.dataProperty = dataProperty;
+		this.individuals = Collections.unmodifiableList(individuals);
+		this.offsets = offsets;
+		this.values = values;
+	}
+
+	// Degree of every value of the column, in the order of getValues()
+	public double[] getDegrees(MembershipFunction function) {
+		return function.degrees(values);
+	}
+
+	// Degree of every individual in the some values restriction: the minimum degree of its values, 0 if it has none
+	public double[] getSomeValuesDegrees(MembershipFunction function) {
+		return getRestrictionDegrees(function, 0);
+	}
+
+	// Degree of every individual in the all values restriction: the minimum degree of its values, 1 if it has none
+	public double[] getAllValuesDegrees(MembershipFunction function) {
+		return getRestrictionDegrees(function, 1);
+	}
+
+	// Same semantics as the evaluation DAG
+	private double[] getRestrictionDegrees(MembershipFunction function, double noValueDegree) {
+		double[] valueDegrees = getDegrees(function);
+		double[] degrees = new double[individuals.size()];
+		for(int i = 0; i < degrees.length; i++) {
+			if(offsets[i] == offsets[i + 1]) {
+				degrees[i] = noValueDegree;
+				continue;
+			}
+			double min = 1;
+			for(int v = offsets[i]; v < offsets[i + 1]; v++) {
+				min = Math.min(min, valueDegrees[v]);
+			}
+			degrees[i] = min;
+		}
+		return degrees;
+	}
+
+	public OWLDataProperty getDataProperty() {
+		return dataProperty;
+	}
+
+	public List<OWLNamedIndividual> getIndividuals() {
+		return individuals;
+	}
+
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	public double[] getValues() {
+		return values;
+	}
+}
@@ -0,0 +1,176 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+/*
+ * Index of the asserted data property values: (individual, data property) -> double[].
+ * Non numeric literals are stored as NaN so that they still count as asserted values.
+ * Built once at load and kept current by listening to the ontology changes.
+ */
+public class DataValueIndex implements OWLOntologyChangeListener {
+	public static final double[] NO_VALUES = new double[0];
+
+	private final OWLOntology ontology;
+	private final Map<OWLNamedIndividual, Map<OWLDataProperty, double[]>> values =
+			new HashMap<OWLNamedIndividual, Map<OWLDataProperty, double[]>>();
+	// Built on demand, dropped when a value of the property changes
+	private final Map<OWLDataProperty, SortedDataValues> sortedValues = new HashMap<OWLDataProperty, SortedDataValues>();
+
+	public DataValueIndex(OWLOntology ontology) {
+		this.ontology = ontology;
+		build();
+	}
+
+	public double[] getValues(OWLNamedIndividual individu, OWLDataProperty dataProperty) {
+		Map<OWLDataProperty, double[]> individuValues = values.get(individu);
+		if(individuValues == null) return NO_VALUES;
+		double[] array = individuValues.get(dataProperty);
+		return array == null ? NO_VALUES : array;
+	}
+
+	public Set<OWLNamedIndividual> getIndexedIndividuals() {
+		return values.keySet();
+	}
+
+	// Values of the data property for all the individuals of the list, in one flat column
+	public DataColumn getColumn(OWLDataProperty dataProperty, List<OWLNamedIndividual> individuals) {
+		int[] offsets = new int[individuals.size() + 1];
+		for(int i = 0; i < individuals.size(); i++) {
+			offsets[i + 1] = offsets[i] + getValues(individuals.get(i), dataProperty).length;
+		}
+		double[] column = new double[offsets[individuals.size()]];
+		for(int i = 0; i < individuals.size(); i++) {
+			double[] individuValues = getValues(individuals.get(i), dataProperty);
+			System.arraycopy(individuValues, 0, column, offsets[i], individuValues.length);
+		}
+		return new DataColumn(dataProperty, individuals, offsets, column);
+	}
+
+	// Values of the data property sorted for range queries; not thread safe
+	public SortedDataValues getSortedValues(OWLDataProperty dataProperty) {
+		SortedDataValues sorted = sortedValues.get(dataProperty);
+		if(sorted == null) {
+			Map<OWLNamedIndividual, double[]> individualValues = new HashMap<OWLNamedIndividual, double[]>();
+			for(Map.Entry<OWLNamedIndividual, Map<OWLDataProperty, double[]>> entry : values.entrySet()) {
+				double[] array = entry.getValue().get(dataProperty);
+				if(array != null) individualValues.put(entry.getKey(), array);
+			}
+			sorted = new SortedDataValues(dataProperty, individualValues);
+			sortedValues.put(dataProperty, sorted);
+		}
+		return sorted;
+	}
+
+	private void build() {
+		Map<OWLNamedIndividual, Map<OWLDataProperty, List<Double>>> lists =
+				new HashMap<OWLNamedIndividual, Map<OWLDataProperty, List<Double>>>();
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLDataPropertyAssertionAxiom axiom : ont.getAxioms(AxiomType.DATA_PROPERTY_ASSERTION)) {
+				if(axiom.getSubject().isAnonymous() || axiom.getProperty().isAnonymous()) continue;
+
+				OWLNamedIndividual individu = axiom.getSubject().asOWLNamedIndividual();
+				Map<OWLDataProperty, List<Double>> individuLists = lists.get(individu);
+				if(individuLists == null) {
+					individuLists = new HashMap<OWLDataProperty, List<Double>>();
+					lists.put(individu, individuLists);
+				}
+				OWLDataProperty dataProperty = axiom.getProperty().asOWLDataProperty();
+				List<Double> list = individuLists.get(dataProperty);
+				if(list == null) {
+					list = new ArrayList<Double>(1);
+					individuLists.put(dataProperty, list);
+				}
+				list.add(toDouble(axiom.getObject()));
+			}
+		}
+
+		values.clear();
+		sortedValues.clear();
+		for(Map.Entry<OWLNamedIndividual, Map<OWLDataProperty, List<Double>>> entry : lists.entrySet()) {
+			Map<OWLDataProperty, double[]> individuValues = new HashMap<OWLDataProperty, double[]>();
+			for(Map.Entry<OWLDataProperty, List<Double>> list : entry.getValue().entrySet()) {
+				individuValues.put(list.getKey(), toArray(list.getValue()));
+			}
+			values.put(entry.getKey(), individuValues);
+		}
+	}
+
+	// Re-reads the values of a single (individual, data property) slot from the ontology
+	private void refresh(OWLNamedIndividual individu, OWLDataProperty dataProperty) {
+		sortedValues.remove(dataProperty);
+		List<Double> list = new ArrayList<Double>(1);
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLDataPropertyAssertionAxiom axiom : ont.getDataPropertyAssertionAxioms(individu)) {
+				if(dataProperty.equals(axiom.getProperty())) list.add(toDouble(axiom.getObject()));
+			}
+		}
+
+		Map<OWLDataProperty, double[]> individuValues = values.get(individu);
+		if(list.isEmpty()) {
+			if(individuValues != null) {
+				individuValues.remove(dataProperty);
+				if(individuValues.isEmpty()) values.remove(individu);
+			}
+			return;
+		}
+		if(individuValues == null) {
+			individuValues = new HashMap<OWLDataProperty, double[]>();
+			values.put(individu, individuValues);
+		}
+		individuValues.put(dataProperty, toArray(list));
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		Set<OWLOntology> closure = ontology.getImportsClosure();
+		Set<OWLDataPropertyAssertionAxiom> touched = new HashSet<OWLDataPropertyAssertionAxiom>();
+		for(OWLOntologyChange change : changes) {
+			if(!closure.contains(change.getOntology())) continue;
+			if(!(change instanceof OWLAxiomChange)) { // the imports closure itself changed
+				build();
+				return;
+			}
+			OWLAxiom axiom = ((OWLAxiomChange) change).getAxiom();
+			if(axiom.isOfType(AxiomType.DATA_PROPERTY_ASSERTION)) {
+				touched.add((OWLDataPropertyAssertionAxiom) axiom);
+			}
+		}
+
+		for(OWLDataPropertyAssertionAxiom axiom : touched) {
+			if(axiom.getSubject().isAnonymous() || axiom.getProperty().isAnonymous()) continue;
+			refresh(axiom.getSubject().asOWLNamedIndividual(), axiom.getProperty().asOWLDataProperty());
+		}
+	}
+
+	private static double toDouble(OWLLiteral literal) {
+		try {
+			return literal.parseDouble();
+		} catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static double[] toArray(List<Double> list) {
+		double[] array = new double[list.size()];
+		for(int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,50 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+import com.handi.floci.modules.reasoning.SymbolTable;
+
+/*
+ * Membership degrees of a set of individuals (rows) in the classes of a symbol table (columns, by class ordinal).
+ * Each row is written by a single worker, so the matrix can be filled concurrently.
+ */
+public class DegreeMatrix {
+	private final List<OWLNamedIndividual> individuals;
+	private final SymbolTable symbols;
+	private final float[][] degrees;
+
+	public DegreeMatrix(List<OWLNamedIndividual> individuals, SymbolTable symbols) {
+		this.individuals = Collections.unmodifiableList(individuals);
+		this.symbols = symbols;
+		this.degrees = new float[individuals.size()][];
+	}
+
+	public void setRow(int row, float[] rowDegrees) {
+		degrees[row] = rowDegrees;
+	}
+
+	// null if the row has not been computed
+	public float[] getRow(int row) {
+		return degrees[row];
+	}
+
+	public float get(int row, int classOrdinal) {
+		return degrees[row][classOrdinal];
+	}
+
+	public List<OWLNamedIndividual> getIndividuals() {
+		return individuals;
+	}
+
+	public List<OWLClass> getClasses() {
+		return symbols.getClasses();
+	}
+
+	public SymbolTable getSymbolTable() {
+		return symbols;
+	}
+}
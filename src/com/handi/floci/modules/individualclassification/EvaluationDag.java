@@ -0,0 +1,442 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataAllValuesFrom;
+import org.semanticweb.owlapi.model.OWLDataCardinalityRestriction;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDataSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLNaryBooleanClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectComplementOf;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.handi.floci.modules.reasoning.SymbolTable;
+
+/*
+ * All the class definitions of the ontology compiled into one evaluation DAG.
+ * Equal sub-expressions are shared (hash-consing on the OWL API structural equality), so every distinct
+ * sub-expression is evaluated at most once per individual. Nodes are stored in flat arrays, children before
+ * their parents, and their degrees memoized in a flat array too (by epoch, nothing to clear between individuals).
+ * The nodes are not swept in index order though, but evaluated on demand from the classes asked for: most
+ * of the cost is the entailment check of the anonymous nodes, and on demand an intersection stops at its first
+ * 0 operand, a union at its first 1, a node the individual is not an instance of skips its operands, and the
+ * operands are periodically reordered so that the cheap and selective ones come first. A sweep would check
+ * every node. The recursion is bounded by the depth of the DAG, i.e. of the class expressions.
+ * The evaluation state lives in the DAG, so a DAG is used by one thread at a time.
+ */
+public class EvaluationDag {
+	// Node kinds
+	static final byte CRISP = 0;       // degree 1 if the individual is an instance, 0 otherwise
+	static final byte COMPLEMENT = 1;
+	static final byte MIN = 2;         // intersection
+	static final byte MAX = 3;         // union
+	static final byte DATA_SOME = 4;
+	static final byte DATA_ALL = 5;
+	static final byte DATA_MIN = 6;
+	static final byte DATA_MAX = 7;
+	static final byte DATA_EXACT = 8;
+	static final byte CLASS_ROOT = 9;  // named class: minimum over the class and its equivalent expressions
+
+	// Fillers of the data restrictions
+	static final byte FILLER_ANY = 0;   // rdfs:Literal, i.e. not qualified
+	static final byte FILLER_FUZZY = 1; // fuzzy datatype
+	static final byte FILLER_CRISP = 2; // any other data range
+
+	private final byte[] kinds;
+	private final OWLClassExpression[] expressions;
+	private final int[] classOrdinals; // ordinal of the named class of a node, -1 for anonymous expressions
+	private final int[] operandStart; // operands of node n are operands[operandStart[n] .. operandStart[n+1]-1]
+	private final int[] operands;
+	private final OWLDataProperty[] dataProperties;
+	private final MembershipFunction[] functions;
+	private final byte[] fillers;
+	private final int[] cardinalities;
+
+	private final SymbolTable symbols;
+	private final int[] classRoots; // root node of every class, by class ordinal
+
+	// Evaluation state: values[n] is the degree of node n for the current individual if epochs[n] == epoch
+	private final double[] values;
+	private final int[] epochs;
+	private int epoch = 0;
+
+	// Measured cost (nanoseconds, operands included) and outcomes of every node, to order the operands
+	private static final int REORDER_INTERVAL = 64;
+	private final long[] costs;
+	private final int[] computations;
+	private final int[] zeros;
+	private final int[] ones;
+	private int evaluations = 0;
+
+	private EvaluationDag(Builder builder, SymbolTable symbols, int[] classRoots) {
+		int size = builder.kinds.size();
+		kinds = new byte[size];
+		expressions = new OWLClassExpression[size];
+		classOrdinals = new int[size];
+		dataProperties = new OWLDataProperty[size];
+		functions = new MembershipFunction[size];
+		fillers = new byte[size];
+		cardinalities = new int[size];
+		operandStart = new int[size + 1];
+		operands = new int[builder.operands.size()];
+		for(int n = 0; n < size; n++) {
+			kinds[n] = builder.kinds.get(n);
+			expressions[n] = builder.expressions.get(n);
+			classOrdinals[n] = expressions[n] == null || expressions[n].isAnonymous() ? -1
+					: symbols.getClassOrdinal(expressions[n].asOWLClass());
+			dataProperties[n] = builder.dataProperties.get(n);
+			functions[n] = builder.functions.get(n);
+			fillers[n] = builder.fillers.get(n);
+			cardinalities[n] = builder.cardinalities.get(n);
+			operandStart[n] = builder.operandStart.get(n);
+		}
+		operandStart[size] = operands.length;
+		for(int i = 0; i < operands.length; i++) {
+			operands[i] = builder.operands.get(i);
+		}
+
+		this.symbols = symbols;
+		this.classRoots = classRoots;
+
+		values = new double[size];
+		epochs = new int[size];
+		costs = new long[size];
+		computations = new int[size];
+		zeros = new int[size];
+		ones = new int[size];
+	}
+
+	// Compiles the definitions of all the classes of the symbol table
+	public static EvaluationDag compile(SymbolTable symbols, OWLOntology ontology,
+			MembershipFunctionRegistry membershipFunctions) {
+		Builder builder = new Builder(membershipFunctions);
+		int[] classRoots = new int[symbols.getClassCount()];
+		for(int i = 0; i < classRoots.length; i++) {
+			OWLClass clazz = symbols.getClass(i);
+			int classNode = builder.compile(clazz);
+			List<Integer> definitions = new ArrayList<Integer>();
+			for(OWLClassExpression equivalent : clazz.getEquivalentClasses(ontology)) {
+				definitions.add(builder.compile(equivalent));
+			}
+			if(definitions.isEmpty()) {
+				classRoots[i] = classNode;
+			} else {
+				definitions.add(0, classNode);
+				classRoots[i] = builder.add(CLASS_ROOT, null, definitions);
+			}
+		}
+		return new EvaluationDag(builder, symbols, classRoots);
+	}
+
+	/*
+	 * Starts the evaluation of the DAG for an individual; nodes are then computed when asked for.
+	 * Membership in the named classes is read from the realized types (by class ordinal),
+	 * the crisp reasoner is only asked about the anonymous expressions.
+	 * Node degrees are shared with the cache of the SimpleFuzzyReasoner.
+	 * Starting a new evaluation ends the previous one.
+	 */
+	public Evaluation evaluate(OWLNamedIndividual individu, Reasoner crispReasoner, BitSet types,
+			DataValueIndex dataValues, TruthDegreeCache cache) {
+		if(++evaluations % REORDER_INTERVAL == 0) reorderOperands();
+		if(++epoch == Integer.MAX_VALUE) {
+			Arrays.fill(epochs, 0);
+			epoch = 1;
+		}
+		return new Evaluation(epoch, individu, crispReasoner, types, dataValues, cache);
+	}
+
+	public class Evaluation {
+		private final int evaluationEpoch;
+		private final OWLNamedIndividual individu;
+		private final Reasoner crispReasoner;
+		private final BitSet types;
+		private final DataValueIndex dataValues;
+		private final TruthDegreeCache cache;
+
+		private Evaluation(int evaluationEpoch, OWLNamedIndividual individu, Reasoner crispReasoner, BitSet types,
+				DataValueIndex dataValues, TruthDegreeCache cache) {
+			this.evaluationEpoch = evaluationEpoch;
+			this.individu = individu;
+			this.crispReasoner = crispReasoner;
+			this.types = types;
+			this.dataValues = dataValues;
+			this.cache = cache;
+		}
+
+		public double getClassDegree(int classOrdinal) {
+			return value(classRoots[classOrdinal]);
+		}
+
+		private double value(int n) {
+			if(evaluationEpoch != epoch) throw new IllegalStateException("Evaluation ended by a newer evaluation");
+			if(epochs[n] == epoch) return values[n];
+			double degree = compute(n);
+			values[n] = degree;
+			epochs[n] = epoch;
+			return degree;
+		}
+
+		private double compute(int n) {
+			if(kinds[n] == CLASS_ROOT) {
+				double min = 1;
+				for(int i = operandStart[n]; i < operandStart[n + 1] && min > 0; i++) {
+					min = Math.min(min, value(operands[i]));
+				}
+				return min;
+			}
+
+			Double cached = cache.get(expressions[n], individu);
+			if(cached != null) return cached;
+
+			long start = System.nanoTime();
+			double degree;
+			boolean instance = classOrdinals[n] >= 0 ? types.get(classOrdinals[n])
+					: crispReasoner.hasType(individu, expressions[n], false);
+			if(!instance) {
+				degree = 0;
+			} else {
+				switch(kinds[n]) {
+					case COMPLEMENT:
+						degree = 1 - value(operands[operandStart[n]]);
+						break;
+					case MIN:
+						degree = 1;
+						for(int i = operandStart[n]; i < operandStart[n + 1] && degree > 0; i++) {
+							degree = Math.min(degree, value(operands[i]));
+						}
+						break;
+					case MAX:
+						degree = 0;
+						for(int i = operandStart[n]; i < operandStart[n + 1] && degree < 1; i++) {
+							degree = Math.max(degree, value(operands[i]));
+						}
+						break;
+					case DATA_SOME:
+					case DATA_ALL:
+						degree = restrictionDegree(n, dataValues.getValues(individu, dataProperties[n]));
+						break;
+					case DATA_MIN:
+					case DATA_MAX:
+					case DATA_EXACT:
+						degree = cardinalityDegree(n, dataValues.getValues(individu, dataProperties[n]));
+						break;
+					default: // CRISP
+						degree = 1;
+				}
+			}
+			costs[n] += System.nanoTime() - start;
+			computations[n]++;
+			if(degree == 0) zeros[n]++;
+			else if(degree == 1) ones[n]++;
+
+			cache.put(expressions[n], individu, degree);
+			return degree;
+		}
+	}
+
+	/*
+	 * Sorts the operands of every intersection by expected cost to reach a 0 (mean cost / frequency of 0),
+	 * and of every union by expected cost to reach a 1. Operands never computed yet come first.
+	 */
+	private void reorderOperands() {
+		double[] scores = new double[operands.length];
+		for(int n = 0; n < kinds.length; n++) {
+			if(kinds[n] != MIN && kinds[n] != MAX && kinds[n] != CLASS_ROOT) continue;
+			int from = operandStart[n], to = operandStart[n + 1];
+			for(int i = from; i < to; i++) {
+				int operand = operands[i];
+				if(computations[operand] == 0) {
+					scores[i] = 0;
+					continue;
+				}
+				double meanCost = (double) costs[operand] / computations[operand];
+				int stops = kinds[n] == MAX ? ones[operand] : zeros[operand];
+				scores[i] = meanCost * computations[operand] / (stops + 1);
+			}
+			// Insertion sort: few operands per node
+			for(int i = from + 1; i < to; i++) {
+				int operand = operands[i];
+				double score = scores[i];
+				int j = i - 1;
+				while(j >= from && scores[j] > score) {
+					operands[j + 1] = operands[j];
+					scores[j + 1] = scores[j];
+					j--;
+				}
+				operands[j + 1] = operand;
+				scores[j + 1] = score;
+			}
+		}
+	}
+
+	// Minimum of the degrees of the values, 1 if the filler is not fuzzy
+	private double restrictionDegree(int n, double[] values) {
+		if(fillers[n] == FILLER_CRISP) return 1; // left to the crisp reasoner
+		// No value: no witness of a some values restriction, nothing violates an all values one
+		if(values.length == 0) return kinds[n] == DATA_SOME ? 0 : 1;
+		if(fillers[n] == FILLER_ANY) return 1;
+		MembershipFunction function = functions[n];
+		double min = 1;
+		for(int i = 0; i < values.length; i++) {
+			min = Math.min(min, function.getDegree(values[i]));
+		}
+		return min;
+	}
+
+	// Mean degree of the acceptable (non zero) values if their number satisfies the cardinality, 0 otherwise.
+	// Every value is of degree 1 for a crisp filler, as for restrictionDegree and the recursive path
+	private double cardinalityDegree(int n, double[] values) {
+		int count = 0;
+		double sum = 0;
+		if(fillers[n] != FILLER_FUZZY) {
+			count = values.length;
+			sum = values.length;
+		} else {
+			MembershipFunction function = functions[n];
+			for(int i = 0; i < values.length; i++) {
+				double degree = function.getDegree(values[i]);
+				if(degree != 0) {
+					count++;
+					sum += degree;
+				}
+			}
+		}
+
+		int cardinality = cardinalities[n];
+		boolean satisfied;
+		switch(kinds[n]) {
+			case DATA_MIN: satisfied = count >= cardinality; break;
+			case DATA_MAX: satisfied = count <= cardinality; break;
+			default: satisfied = count == cardinality;
+		}
+		if(!satisfied || count == 0) return 0;
+		return sum / count;
+	}
+
+	public SymbolTable getSymbolTable() {
+		return symbols;
+	}
+
+	// The data restrictions of the definitions, whose degrees the recursive path computes too
+	public List<OWLClassExpression> getDataRestrictions() {
+		List<OWLClassExpression> restrictions = new ArrayList<OWLClassExpression>();
+		for(int n = 0; n < kinds.length; n++) {
+			if(kinds[n] >= DATA_SOME && kinds[n] <= DATA_EXACT) restrictions.add(expressions[n]);
+		}
+		return restrictions;
+	}
+
+	public int size() {
+		return kinds.length;
+	}
+
+	private static class Builder {
+		private final MembershipFunctionRegistry membershipFunctions;
+		private final Map<OWLClassExpression, Integer> ids = new HashMap<OWLClassExpression, Integer>();
+
+		private final List<Byte> kinds = new ArrayList<Byte>();
+		private final List<OWLClassExpression> expressions = new ArrayList<OWLClassExpression>();
+		private final List<Integer> operandStart = new ArrayList<Integer>();
+		private final List<Integer> operands = new ArrayList<Integer>();
+		private final List<OWLDataProperty> dataProperties = new ArrayList<OWLDataProperty>();
+		private final List<MembershipFunction> functions = new ArrayList<MembershipFunction>();
+		private final List<Byte> fillers = new ArrayList<Byte>();
+		private final List<Integer> cardinalities = new ArrayList<Integer>();
+
+		Builder(MembershipFunctionRegistry membershipFunctions) {
+			this.membershipFunctions = membershipFunctions;
+		}
+
+		// Post-order: the operands get their ids before the expression itself
+		int compile(OWLClassExpression clazz) {
+			Integer id = ids.get(clazz);
+			if(id != null) return id;
+
+			switch(clazz.getClassExpressionType()) {
+				case OBJECT_COMPLEMENT_OF:
+					List<Integer> operand = new ArrayList<Integer>(1);
+					operand.add(compile(((OWLObjectComplementOf) clazz).getOperand()));
+					id = add(COMPLEMENT, clazz, operand);
+					break;
+				case OBJECT_INTERSECTION_OF:
+					id = add(MIN, clazz, compileOperands((OWLNaryBooleanClassExpression) clazz));
+					break;
+				case OBJECT_UNION_OF:
+					id = add(MAX, clazz, compileOperands((OWLNaryBooleanClassExpression) clazz));
+					break;
+				case DATA_SOME_VALUES_FROM:
+					OWLDataSomeValuesFrom some = (OWLDataSomeValuesFrom) clazz;
+					id = addDataRestriction(DATA_SOME, clazz, some.getProperty().asOWLDataProperty(), some.getFiller(), 0);
+					break;
+				case DATA_ALL_VALUES_FROM:
+					OWLDataAllValuesFrom all = (OWLDataAllValuesFrom) clazz;
+					id = addDataRestriction(DATA_ALL, clazz, all.getProperty().asOWLDataProperty(), all.getFiller(), 0);
+					break;
+				case DATA_MIN_CARDINALITY:
+				case DATA_MAX_CARDINALITY:
+				case DATA_EXACT_CARDINALITY:
+					OWLDataCardinalityRestriction card = (OWLDataCardinalityRestriction) clazz;
+					byte kind = clazz.getClassExpressionType() == ClassExpressionType.DATA_MIN_CARDINALITY ? DATA_MIN
+							: clazz.getClassExpressionType() == ClassExpressionType.DATA_MAX_CARDINALITY ? DATA_MAX
+							: DATA_EXACT;
+					id = addDataRestriction(kind, clazz, card.getProperty().asOWLDataProperty(), card.getFiller(),
+							card.getCardinality());
+					break;
+				default: // named classes and object restrictions are crisp
+					id = add(CRISP, clazz, Collections.<Integer>emptyList());
+			}
+			ids.put(clazz, id);
+			return id;
+		}
+
+		private List<Integer> compileOperands(OWLNaryBooleanClassExpression clazz) {
+			List<Integer> list = new ArrayList<Integer>();
+			for(OWLClassExpression operand : clazz.getOperands()) {
+				int id = compile(operand);
+				if(!list.contains(id)) list.add(id);
+			}
+			return list;
+		}
+
+		private int addDataRestriction(byte kind, OWLClassExpression clazz, OWLDataProperty dataProperty,
+				OWLDataRange filler, int cardinality) {
+			int id = add(kind, clazz, Collections.<Integer>emptyList());
+			dataProperties.set(id, dataProperty);
+			cardinalities.set(id, cardinality);
+			if(filler.isTopDatatype()) {
+				fillers.set(id, FILLER_ANY);
+			} else if(filler.isDatatype() && membershipFunctions.get(filler.asOWLDatatype()) != null) {
+				fillers.set(id, FILLER_FUZZY);
+				functions.set(id, membershipFunctions.get(filler.asOWLDatatype()));
+			} else {
+				fillers.set(id, FILLER_CRISP);
+			}
+			return id;
+		}
+
+		int add(byte kind, OWLClassExpression clazz, List<Integer> nodeOperands) {
+			int id = kinds.size();
+			kinds.add(kind);
+			expressions.add(clazz);
+			operandStart.add(operands.size());
+			operands.addAll(nodeOperands);
+			dataProperties.add(null);
+			functions.add(null);
+			fillers.add(FILLER_ANY);
+			cardinalities.add(0);
+			return id;
+		}
+	}
+}
@@ -16,11 +16,11 @@ import org.semanticweb.owlapi.vocab.*;
 public class FuzzyOwl2toFuzzyDL extends FuzzyOwl2
 {
 
-	private final double EPSILON = 0.001;
-	private final double DOUBLE_MIN_VALUE = -1000000;
-	private final double DOUBLE_MAX_VALUE = 1000000;
-	private final int INTEGER_MIN_VALUE = -1000000;
-	private final int INTEGER_MAX_VALUE = 1000000;
+	protected final double EPSILON = 0.001;
+	protected final double DOUBLE_MIN_VALUE = -1000000;
+	protected final double DOUBLE_MAX_VALUE = 1000000;
+	protected final int INTEGER_MIN_VALUE = -1000000;
+	protected final int INTEGER_MAX_VALUE = 1000000;
 	
 	private Set<String> booleanDatatypes;
 	private Set<String> dataProperties;
@@ -163,7 +163,7 @@ public class FuzzyOwl2toFuzzyDL extends FuzzyOwl2
 	}
 	
 	
-	private int[] getK1andK2(String name)
+	protected int[] getK1andK2(String name)
 	{
 		int k[] = new int[2];
 		k[0] = INTEGER_MIN_VALUE;
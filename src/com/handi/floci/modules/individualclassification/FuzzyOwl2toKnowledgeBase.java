@@ -0,0 +1,511 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.DataRangeType;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataAllValuesFrom;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
+import org.semanticweb.owlapi.model.OWLDataPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDataSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNaryBooleanClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectAllValuesFrom;
+import org.semanticweb.owlapi.model.OWLObjectComplementOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLQuantifiedDataRestriction;
+
+import fuzzydl.Concept;
+import fuzzydl.Degree;
+import fuzzydl.DegreeNumeric;
+import fuzzydl.KnowledgeBase;
+import fuzzydl.LeftConcreteConcept;
+import fuzzydl.LinearConcreteConcept;
+import fuzzydl.Modifier;
+import fuzzydl.RightConcreteConcept;
+import fuzzydl.TrapezoidalConcreteConcept;
+import fuzzydl.TriangularConcreteConcept;
+import fuzzyowl2.FuzzyLogic;
+import fuzzyowl2.LeftShoulderFunction;
+import fuzzyowl2.LinearFunction;
+import fuzzyowl2.ModifiedConcept;
+import fuzzyowl2.ModifiedFunction;
+import fuzzyowl2.RightShoulderFunction;
+import fuzzyowl2.TrapezoidalFunction;
+import fuzzyowl2.TriangularFunction;
+
+/*
+ * Builds the FuzzyDL knowledge base of a fuzzy OWL 2 ontology from the FuzzyOwl2 callbacks, without
+ * writing the fuzzyDL program and parsing it again.
+ * Each callback makes the KnowledgeBase calls the parser makes for the statement FuzzyOwl2toFuzzyDL
+ * prints, in the same order, with the same names; the statements it does not build (weighted and
+ * aggregation concepts, string and boolean values, ...) are left to the text translation: the parent
+ * prints them, and printing stops the direct translation. They are looked for in the ontology before
+ * translating, so that the text translation does not come after a nearly complete direct one.
+ */
+public class FuzzyOwl2toKnowledgeBase extends FuzzyOwl2toFuzzyDL {
+	private static final Pattern CONCEPT_TYPE = Pattern.compile("<Concept\\s+type\\s*=\\s*\"([^\"]*)\"");
+	private static final Set<ClassExpressionType> BUILT_EXPRESSIONS = EnumSet.of(ClassExpressionType.OWL_CLASS,
+			ClassExpressionType.OBJECT_INTERSECTION_OF, ClassExpressionType.OBJECT_UNION_OF, ClassExpressionType.OBJECT_COMPLEMENT_OF,
+			ClassExpressionType.OBJECT_SOME_VALUES_FROM, ClassExpressionType.OBJECT_ALL_VALUES_FROM,
+			ClassExpressionType.DATA_SOME_VALUES_FROM, ClassExpressionType.DATA_ALL_VALUES_FROM);
+
+	private final KnowledgeBase knowledgeBase = new KnowledgeBase();
+	private final Map<String, Modifier> modifiers = new HashMap<String, Modifier>();
+	private final Set<String> numericalFeatures = new HashSet<String>();
+	private String unsupportedConstruct;
+
+
+	// A statement of the program the direct translation does not build
+	private static class UnsupportedConstruct extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedConstruct(String construct) {
+			super(construct);
+		}
+	}
+
+	public FuzzyOwl2toKnowledgeBase(String input) {
+		super(input, null);
+	}
+
+	// The knowledge base of the ontology document, not solved; null if it has to go through the program text
+	public KnowledgeBase translate() {
+		unsupportedConstruct = findUnsupportedConstruct();
+		if(unsupportedConstruct != null) return null;
+		try {
+			translateOwl2Ontology();
+			return knowledgeBase;
+		} catch(UnsupportedConstruct e) {
+			// Missed by findUnsupportedConstruct
+			unsupportedConstruct = e.getMessage();
+			return null;
+		}
+	}
+
+	// What the direct translation does not build, once translate returned null
+	public String getUnsupportedConstruct() {
+		return unsupportedConstruct;
+	}
+
+	/*
+	 * Constructs not built, found without translating
+	 */
+
+	private String findUnsupportedConstruct() {
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLAxiom axiom : ont.getAxioms()) {
+				String construct = findUnsupportedConstruct(axiom);
+				if(construct != null) return construct;
+			}
+		}
+		return null;
+	}
+
+	private String findUnsupportedConstruct(OWLAxiom axiom) {
+		if(axiom.isOfType(AxiomType.ANNOTATION_ASSERTION)) {
+			// The concepts of the class annotations: only the modified ones are built (the parent skips the nominals)
+			OWLAnnotationAssertionAxiom annotation = (OWLAnnotationAssertionAxiom) axiom;
+			if(!isFuzzyLabel(annotation.getProperty()) || !(annotation.getValue() instanceof OWLLiteral)) return null;
+			Matcher type = CONCEPT_TYPE.matcher(((OWLLiteral) annotation.getValue()).getLiteral());
+			if(type.find() && !type.group(1).equals("modified") && !type.group(1).equals("nominal")) return type.group(1) + " concept";
+			return null;
+		}
+		if(!axiom.isLogicalAxiom()) return null;
+		if(axiom.isOfType(AxiomType.DISJOINT_UNION)) return axiom.getAxiomType().getName();
+		if(axiom.isOfType(AxiomType.EQUIVALENT_CLASSES) && ((OWLEquivalentClassesAxiom) axiom).getNamedClasses().isEmpty())
+			return axiom.toString();
+		if(axiom.isOfType(AxiomType.DATA_PROPERTY_ASSERTION)) {
+			OWLLiteral value = ((OWLDataPropertyAssertionAxiom) axiom).getObject();
+			if(!isFuzzyDatatype(value.getDatatype()) && !value.isDouble() && !value.isInteger() && !value.isFloat())
+				return value.toString();
+		}
+		if(axiom.isOfType(AxiomType.DATA_PROPERTY_RANGE)) {
+			OWLDataRange range = ((OWLDataPropertyRangeAxiom) axiom).getRange();
+			if(!isBuiltRange(range)) return range.toString();
+		}
+		for(OWLClassExpression c : axiom.getNestedClassExpressions()) {
+			if(!BUILT_EXPRESSIONS.contains(c.getClassExpressionType())) return c.getClassExpressionType().getName();
+			if(c instanceof OWLQuantifiedDataRestriction) {
+				OWLDataRange filler = ((OWLQuantifiedDataRestriction) c).getFiller();
+				if(filler.getDataRangeType() != DataRangeType.DATATYPE || !isFuzzyDatatype(filler.asOWLDatatype())) return c.toString();
+			}
+		}
+		return null;
+	}
+
+	private static boolean isFuzzyLabel(OWLAnnotationProperty property) {
+		return "fuzzyLabel".equals(property.getIRI().getFragment());
+	}
+
+	private boolean isFuzzyDatatype(OWLDatatype datatype) {
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLAnnotation annotation : datatype.getAnnotations(ont)) {
+				if(isFuzzyLabel(annotation.getProperty())) return true;
+			}
+		}
+		return false;
+	}
+
+	// The ranges writeDataPropertyRangeAxiom builds
+	private boolean isBuiltRange(OWLDataRange range) {
+		if(range.getDataRangeType() != DataRangeType.DATATYPE) return false;
+		OWLDatatype datatype = range.asOWLDatatype();
+		String name = range.toString();
+		return datatype.isString() || name.equals("xsd:date") || name.equals("xsd:dateTime") || name.equals("xsd:anyURI")
+				|| datatype.isFloat() || datatype.isDouble() || isIntegerDatatype(datatype);
+	}
+
+	/*
+	 * Translation
+	 */
+
+	@Override
+	protected void print(String statement) {
+		throw new UnsupportedConstruct(statement);
+	}
+
+	private static Degree degree(double d) {
+		return DegreeNumeric.getDegree(d);
+	}
+
+	private Concept concept(String name) {
+		return knowledgeBase.getConcept(name);
+	}
+
+	private Concept concept(OWLClassExpression c) {
+		switch(c.getClassExpressionType()) {
+			case OWL_CLASS:
+				if(c.isOWLThing()) return Concept.CONCEPT_TOP;
+				if(c.isOWLNothing()) return Concept.CONCEPT_BOTTOM;
+				return concept(getAtomicConceptName(c.asOWLClass()));
+			case OBJECT_INTERSECTION_OF:
+				return Concept.and(concepts(((OWLNaryBooleanClassExpression) c).getOperands()));
+			case OBJECT_UNION_OF:
+				return Concept.or(concepts(((OWLNaryBooleanClassExpression) c).getOperands()));
+			case OBJECT_COMPLEMENT_OF:
+				return Concept.complement(concept(((OWLObjectComplementOf) c).getOperand()));
+			case OBJECT_SOME_VALUES_FROM:
+				OWLObjectSomeValuesFrom some = (OWLObjectSomeValuesFrom) c;
+				return Concept.some(getObjectPropertyName(some.getProperty()), concept(some.getFiller()));
+			case OBJECT_ALL_VALUES_FROM:
+				OWLObjectAllValuesFrom all = (OWLObjectAllValuesFrom) c;
+				return Concept.all(getObjectPropertyName(all.getProperty()), concept(all.getFiller()));
+			case DATA_SOME_VALUES_FROM:
+				OWLDataSomeValuesFrom dataSome = (OWLDataSomeValuesFrom) c;
+				return Concept.some(getDataPropertyName(dataSome.getProperty()), fuzzyDatatype(dataSome.getFiller(), c));
+			case DATA_ALL_VALUES_FROM:
+				OWLDataAllValuesFrom dataAll = (OWLDataAllValuesFrom) c;
+				return Concept.all(getDataPropertyName(dataAll.getProperty()), fuzzyDatatype(dataAll.getFiller(), c));
+			default:
+				throw new UnsupportedConstruct(c.toString());
+		}
+	}
+
+	private List<Concept> concepts(Set<OWLClassExpression> operands) {
+		List<Concept> concepts = new ArrayList<Concept>();
+		for(OWLClassExpression operand : operands) {
+			concepts.add(concept(operand));
+		}
+		return concepts;
+	}
+
+	// Only the fuzzy datatypes; the crisp ranges declare a feature on the way in the program
+	private Concept fuzzyDatatype(OWLDataRange range, OWLClassExpression restriction) {
+		if(range.getDataRangeType() == DataRangeType.DATATYPE) {
+			String datatypeName = pm.getShortForm(range.asOWLDatatype());
+			if(fuzzyDatatypes.containsKey(datatypeName)) return concept(datatypeName);
+		}
+		throw new UnsupportedConstruct(restriction.toString());
+	}
+
+	private Modifier modifier(String name) {
+		Modifier modifier = modifiers.get(name);
+		if(modifier == null) throw new UnsupportedConstruct("modifier " + name);
+		return modifier;
+	}
+
+	// (functional f) (range f *real* ...) or (range f *integer* ...)
+	private void defineNumericalFeature(String dpName, boolean integer, int[] bounds) {
+		numericalFeatures.add(dpName);
+		knowledgeBase.roleIsFunctional(dpName);
+		if(integer) knowledgeBase.defineIntegerConcreteFeature(dpName, bounds[0], bounds[1]);
+		else knowledgeBase.defineRealConcreteFeature(dpName, DOUBLE_MIN_VALUE, DOUBLE_MAX_VALUE);
+	}
+
+	/*
+	 * Declarations and definitions
+	 */
+
+	@Override
+	protected void writeFuzzyLogic(FuzzyLogic logic) {
+		knowledgeBase.setLogic(logic.toString());
+	}
+
+	@Override
+	protected void writeConceptDeclaration(OWLClassExpression c) {
+		knowledgeBase.definePrimitiveConcept(getClassName(c), Concept.CONCEPT_TOP);
+	}
+
+	@Override
+	protected void writeDataPropertyDeclaration(OWLDataPropertyExpression dp) {
+		writeFunctionalDataPropertyAxiom(dp);
+		knowledgeBase.defineStringConcreteFeature(getDataPropertyName(dp));
+	}
+
+	@Override
+	protected void writeTriangularModifierDefinition(String name, fuzzyowl2.TriangularModifier mod) {
+		Modifier modifier = new fuzzydl.TriangularModifier(name, mod.getA(), mod.getB(), mod.getC());
+		modifiers.put(name, modifier);
+		knowledgeBase.addModifier(name, modifier);
+	}
+
+	@Override
+	protected void writeLinearModifierDefinition(String name, fuzzyowl2.LinearModifier mod) {
+		Modifier modifier = new fuzzydl.LinearModifier(name, mod.getC());
+		modifiers.put(name, modifier);
+		knowledgeBase.addModifier(name, modifier);
+	}
+
+	@Override
+	protected void writeLeftShoulderFunctionDefinition(String name, LeftShoulderFunction f) {
+		knowledgeBase.addFuzzyConcept(name, new LeftConcreteConcept(name, f.getMinValue(), f.getMaxValue(), f.getA(), f.getB()));
+	}
+
+	@Override
+	protected void writeRightShoulderFunctionDefinition(String name, RightShoulderFunction f) {
+		knowledgeBase.addFuzzyConcept(name, new RightConcreteConcept(name, f.getMinValue(), f.getMaxValue(), f.getA(), f.getB()));
+	}
+
+	@Override
+	protected void writeLinearFunctionDefinition(String name, LinearFunction f) {
+		knowledgeBase.addFuzzyConcept(name, new LinearConcreteConcept(name, f.getMinValue(), f.getMaxValue(), f.getA(), f.getB()));
+	}
+
+	@Override
+	protected void writeTriangularFunctionDefinition(String name, TriangularFunction f) {
+		knowledgeBase.addFuzzyConcept(name, new TriangularConcreteConcept(name, f.getMinValue(), f.getMaxValue(),
+				f.getA(), f.getB(), f.getC()));
+	}
+
+	@Override
+	protected void writeTrapezoidalFunctionDefinition(String name, TrapezoidalFunction f) {
+		knowledgeBase.addFuzzyConcept(name, new TrapezoidalConcreteConcept(name, f.getMinValue(), f.getMaxValue(),
+				f.getA(), f.getB(), f.getC(), f.getD()));
+	}
+
+	@Override
+	protected void writeModifiedFunctionDefinition(String name, ModifiedFunction dat) {
+		knowledgeBase.defineConcept(name, modifier(dat.getMod()).modify(concept(dat.getD())));
+	}
+
+	@Override
+	protected void writeModifiedConceptDefinition(String name, ModifiedConcept c) {
+		knowledgeBase.defineConcept(name, modifier(c.getFuzzyModifier()).modify(concept(c.getFuzzyConcept())));
+	}
+
+	/*
+	 * Assertions
+	 */
+
+	@Override
+	protected void writeConceptAssertionAxiom(OWLIndividual i, OWLClassExpression c, double d) {
+		knowledgeBase.addAssertion(knowledgeBase.getIndividual(getIndividualName(i)), concept(c), degree(d));
+	}
+
+	@Override
+	protected void writeObjectPropertyAssertionAxiom(OWLIndividual i1, OWLIndividual i2, OWLObjectPropertyExpression p, double d) {
+		knowledgeBase.addRelation(knowledgeBase.getIndividual(getIndividualName(i1)), getObjectPropertyName(p),
+				knowledgeBase.getIndividual(getIndividualName(i2)), degree(d));
+	}
+
+	@Override
+	protected void writeDataPropertyAssertionAxiom(OWLIndividual i1, OWLLiteral i2, OWLDataPropertyExpression p, double d) {
+		OWLDatatype dat = i2.getDatatype();
+		String dpName = getDataPropertyName(p);
+		if(dat == null) throw new UnsupportedConstruct(i2.toString());
+
+		Concept value;
+		String datatypeName = pm.getShortForm(dat.asOWLDatatype());
+		if(fuzzyDatatypes.containsKey(datatypeName)) {
+			value = Concept.some(dpName, concept(datatypeName));
+		} else if(i2.isDouble() || i2.isInteger() || i2.isFloat()) {
+			if(!numericalFeatures.contains(dpName))
+				defineNumericalFeature(dpName, i2.isInteger(), new int[] { INTEGER_MIN_VALUE, INTEGER_MAX_VALUE });
+			if(i2.isDouble()) value = Concept.exactValue(dpName, i2.parseDouble());
+			else if(i2.isInteger()) value = Concept.exactValue(dpName, i2.parseInteger());
+			else value = Concept.exactValue(dpName, i2.parseFloat());
+		} else {
+			throw new UnsupportedConstruct(i2.toString());
+		}
+		knowledgeBase.addAssertion(knowledgeBase.getIndividual(getIndividualName(i1)), value, degree(d));
+	}
+
+	/*
+	 * Concept axioms
+	 */
+
+	@Override
+	protected void writeDisjointClassesAxiom(Set<OWLClassExpression> set) {
+		if(set.size() > 1) {
+			List<Concept> concepts = new ArrayList<Concept>();
+			for(OWLClassExpression c : set) {
+				concepts.add(concept(getShortName(c.asOWLClass())));
+			}
+			knowledgeBase.addDisjointConcepts(concepts);
+		}
+	}
+
+	@Override
+	protected void writeSubclassOfAxiom(OWLClassExpression subclass, OWLClassExpression superclass, double d) {
+		if(subclass.getClassExpressionType() == ClassExpressionType.OWL_CLASS && d == 1)
+			knowledgeBase.definePrimitiveConcept(getShortName(subclass.asOWLClass()), concept(superclass));
+		else
+			knowledgeBase.implies(concept(subclass), concept(superclass), degree(d));
+	}
+
+	@Override
+	protected void writeEquivalentClassesAxiom(Set<OWLClassExpression> set) {
+		OWLClassExpression leftClass = null;
+		for(OWLClassExpression c : set) {
+			if(c.getClassExpressionType() == ClassExpressionType.OWL_CLASS) {
+				leftClass = c;
+				break;
+			}
+		}
+		if(leftClass == null) throw new UnsupportedConstruct(set.toString());
+
+		String name = getShortName(leftClass.asOWLClass());
+		for(OWLClassExpression c : set) {
+			if(c != leftClass) knowledgeBase.defineConcept(name, concept(c));
+		}
+	}
+
+	/*
+	 * Property axioms
+	 */
+
+	@Override
+	protected void writeSubObjectPropertyOfAxiom(OWLObjectPropertyExpression subProperty, OWLObjectPropertyExpression superProperty, double d) {
+		knowledgeBase.roleImplies(getObjectPropertyName(subProperty), getObjectPropertyName(superProperty), degree(d));
+	}
+
+	@Override
+	protected void writeSubDataPropertyOfAxiom(OWLDataPropertyExpression subProperty, OWLDataPropertyExpression superProperty, double d) {
+		knowledgeBase.roleImplies(getDataPropertyName(subProperty), getDataPropertyName(superProperty), degree(d));
+	}
+
+	@Override
+	protected void writeEquivalentObjectPropertiesAxiom(Set<OWLObjectPropertyExpression> set) {
+		Iterator<OWLObjectPropertyExpression> it = set.iterator();
+		String first = getObjectPropertyName(it.next());
+		while(it.hasNext()) {
+			String property = getObjectPropertyName(it.next());
+			knowledgeBase.roleImplies(first, property, degree(1));
+			knowledgeBase.roleImplies(property, first, degree(1));
+		}
+	}
+
+	@Override
+	protected void writeEquivalentDataPropertiesAxiom(Set<OWLDataPropertyExpression> set) {
+		Iterator<OWLDataPropertyExpression> it = set.iterator();
+		String first = getDataPropertyName(it.next());
+		while(it.hasNext()) {
+			String property = getDataPropertyName(it.next());
+			knowledgeBase.roleImplies(first, property, degree(1));
+			knowledgeBase.roleImplies(property, first, degree(1));
+		}
+	}
+
+	@Override
+	protected void writeTransitiveObjectPropertyAxiom(OWLObjectPropertyExpression p) {
+		knowledgeBase.roleIsTransitive(getObjectPropertyName(p));
+	}
+
+	@Override
+	protected void writeSymmetricObjectPropertyAxiom(OWLObjectPropertyExpression p) {
+		knowledgeBase.roleIsSymmetric(getObjectPropertyName(p));
+	}
+
+	@Override
+	protected void writeReflexiveObjectPropertyAxiom(OWLObjectPropertyExpression p) {
+		knowledgeBase.roleIsReflexive(getObjectPropertyName(p));
+	}
+
+	@Override
+	protected void writeFunctionalObjectPropertyAxiom(OWLObjectPropertyExpression p) {
+		knowledgeBase.roleIsFunctional(getObjectPropertyName(p));
+	}
+
+	@Override
+	protected void writeFunctionalDataPropertyAxiom(OWLDataPropertyExpression p) {
+		knowledgeBase.roleIsFunctional(getDataPropertyName(p));
+	}
+
+	@Override
+	protected void writeInverseObjectPropertiesAxiom(OWLObjectPropertyExpression p1, OWLObjectPropertyExpression p2) {
+		knowledgeBase.addInverseRoles(getObjectPropertyName(p1), getObjectPropertyName(p2));
+	}
+
+	@Override
+	protected void writeInverseFunctionalObjectPropertyAxiom(OWLObjectPropertyExpression p) {
+		knowledgeBase.roleIsInverseFunctional(getObjectPropertyName(p));
+	}
+
+	@Override
+	protected void writeObjectPropertyDomainAxiom(OWLObjectPropertyExpression p, OWLClassExpression c) {
+		knowledgeBase.roleDomain(getObjectPropertyName(p), concept(c));
+	}
+
+	@Override
+	protected void writeObjectPropertyRangeAxiom(OWLObjectPropertyExpression p, OWLClassExpression c) {
+		knowledgeBase.roleRange(getObjectPropertyName(p), concept(c));
+	}
+
+	@Override
+	protected void writeDataPropertyDomainAxiom(OWLDataPropertyExpression p, OWLClassExpression c) {
+		knowledgeBase.roleDomain(getDataPropertyName(p), concept(c));
+	}
+
+	// The plain datatypes only; the facet intervals and the enumerations go through the program text
+	@Override
+	protected void writeDataPropertyRangeAxiom(OWLDataPropertyExpression p, OWLDataRange range) {
+		if(range.getDataRangeType() != DataRangeType.DATATYPE) throw new UnsupportedConstruct(range.toString());
+		String dpName = getDataPropertyName(p);
+		OWLDatatype datatype = range.asOWLDatatype();
+		String name = range.toString();
+		if(datatype.isString() || name.equals("xsd:date") || name.equals("xsd:dateTime") || name.equals("xsd:anyURI")) {
+			writeFunctionalDataPropertyAxiom(p);
+			knowledgeBase.defineStringConcreteFeature(dpName);
+		} else if(datatype.isFloat() || datatype.isDouble()) {
+			defineNumericalFeature(dpName, false, null);
+		} else if(isIntegerDatatype(datatype)) {
+			defineNumericalFeature(dpName, true, getK1andK2(name));
+		} else {
+			// Boolean, or not supported by the text translation either
+			throw new UnsupportedConstruct(range.toString());
+		}
+	}
+}
@@ -1,22 +1,20 @@
 package com.handi.floci.modules.individualclassification;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.semanticweb.HermiT.Reasoner;
-import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import com.handi.floci.modules.conceptclassification.HierarchyGenerator;
+import com.handi.floci.modules.conceptclassification.Taxonomy;
+import com.handi.floci.modules.conceptclassification.TaxonomyIndex;
+import com.handi.floci.modules.reasoning.SymbolTable;
 
 import fuzzydl.Concept;
 import fuzzydl.Individual;
@@ -30,121 +28,135 @@ public class IndividualClassificationDisplayer {
 	private OWLOntology ontology;
 	private OWLOntologyManager manager;
 	private SimpleFuzzyReasoner fuzzyReasoner;
+	private TaxonomyIndex taxonomyIndex;
+	private HierarchyGenerator hierarchyGenerator;
+	private ModularFuzzyReasoner modularReasoner;
 	
 	public IndividualClassificationDisplayer(KnowledgeBase kb, OWLOntology ontology) {
 		this.kb = kb;
 		this.ontology = ontology;
 	}
 	
-	@SuppressWarnings("unchecked")
-	public void calculateMembershipFuzzyDL(OWLNamedIndividual individu) {
+	// Degree of each class for the individual, by class name, for the WebViewBridge
+	public Map<String, Double> calculateMembershipFuzzyDL(OWLNamedIndividual individu) {
 		Set<OWLClass> clazzes = ontology.getClassesInSignature();
+		Map<String, Double> degrees = new LinkedHashMap<String, Double>();
 		try {
 			Individual i = kb.getIndividual(individu.getIRI().getFragment());
 			
-			JSONArray degrees = new JSONArray();
-			
 			for(OWLClass clazz: clazzes) {
 				Concept c = kb.getConcept(clazz.getIRI().getFragment());
 				Query query = new MinInstanceQuery(c,i);
 				Solution result = query.solve(kb);
 				if(result != null) {
-					JSONObject degre = new JSONObject();
-					degre.put("name", c.toString());
-					degre.put("degree", result.getSolution());
-					degrees.add(degre);
-				}
-			}
-			
-			FileWriter file = null;
-			try {
-				file = new FileWriter("D:\\Development\\Workspace\\Java\\FLOCI\\src\\com\\handi\\floci\\modules\\display\\degrees.json");
-				file.write(degrees.toJSONString());
-			} catch(Exception e) {
-				e.printStackTrace();
-			} finally {
-				try {
-					file.flush();
-					file.close();
-				} catch (IOException e1) {
-					e1.printStackTrace();
+					degrees.put(c.toString(), result.getSolution());
 				}
 			}
 		} catch(Exception e) {
 			e.printStackTrace();
 		}
+		return degrees;
 	}
 	
 	public IndividualClassificationDisplayer(HierarchyGenerator hierarchyGenerator) {
+		this(hierarchyGenerator, false);
+	}
+	
+	// With modular set, the individual is classified against the locality module of its neighbourhood only
+	public IndividualClassificationDisplayer(HierarchyGenerator hierarchyGenerator, boolean modular) {
+		this.hierarchyGenerator = hierarchyGenerator;
 		manager = hierarchyGenerator.getOntologyManager();
 		ontology = hierarchyGenerator.getOntology();
-		// Initialize Fuzzy Reasoner
-		fuzzyReasoner = new SimpleFuzzyReasoner(hierarchyGenerator.getReasoner(),
-				hierarchyGenerator.getOntology(), manager);
-		
+		if(modular) {
+			modularReasoner = hierarchyGenerator.getModularReasoner();
+		} else {
+			// Get the Fuzzy Reasoner of the loaded ontology
+			fuzzyReasoner = hierarchyGenerator.getFuzzyReasoner();
+			taxonomyIndex = hierarchyGenerator.getTaxonomyIndex();
+		}
 	}
 	
-	@SuppressWarnings("unchecked")
-	public void calculateMembershipSFR(OWLNamedIndividual individu) {
-		HashMap<String, Double> hashmap = fuzzyReasoner.calculateTruthDegree(individu);
-		Reasoner reasoner = fuzzyReasoner.getCrispReasoner();
+	// Degree of each class for the individual, by class name, for the WebViewBridge
+	public Map<String, Double> calculateMembershipSFR(OWLNamedIndividual individu) throws OWLOntologyCreationException {
+		if(modularReasoner != null) return calculateMembershipModular(individu);
 		
-		for(String clazzName : hashmap.keySet()) {
-			if(hashmap.get(clazzName) == 1.0) {
-				
-				ArrayList<Double> degrees = new ArrayList<Double>();
-				ArrayList<String> concepts = new ArrayList<String>();
-				OWLClass clazz = manager.getOWLDataFactory()
-						.getOWLClass(IRI.create(ontology.getOntologyID().getOntologyIRI().toString() 
-								+ "#" + clazzName));
+		// One degree per class, indexed by class ordinal
+		SymbolTable symbols = fuzzyReasoner.getSymbolTable();
+		double[] degreesByClass = fuzzyReasoner.calculateClassDegrees(individu);
+		
+		int[] children = new int[symbols.getClassCount()];
+		for(int ordinal = 0; ordinal < degreesByClass.length; ordinal++) {
+			if(degreesByClass[ordinal] == 1.0) {
+				// Direct satisfiable subclasses from the taxonomy index, without asking the reasoner
+				int taxonomyOrdinal = taxonomyIndex.getOrdinal(symbols.getClass(ordinal));
+				if(taxonomyOrdinal < 0) continue;
 				
-				for (OWLClass child : reasoner.getSubClasses(clazz, true).getFlattened()) {
-	            	if (!child.equals(clazz)) {
-	            		String name = child.getIRI().getFragment();
-	            		if(!name.equals("Nothing")) {
-		            		degrees.add(hashmap.get(name));
-		            		concepts.add(name);
-	            		}
-	                }
-	            }
+				int childCount = 0;
+				double maxDegree = 0;
+				for (int child : taxonomyIndex.getChildren(taxonomyOrdinal)) {
+					int childOrdinal = symbols.getClassOrdinal(taxonomyIndex.getClass(child));
+					if (childOrdinal >= 0) {
+						children[childCount++] = childOrdinal;
+						maxDegree = Math.max(maxDegree, degreesByClass[childOrdinal]);
+					}
+				}
 				
-				if(!degrees.isEmpty()) {
-					if(Collections.max(degrees) == 0.0) {
-						hashmap.put(clazzName, 10.0);
-						for(String concept: concepts) {
-							hashmap.put(concept, 10.0);
-						}
+				if(childCount > 0 && maxDegree == 0.0) {
+					degreesByClass[ordinal] = 10.0;
+					for(int i = 0; i < childCount; i++) {
+						degreesByClass[children[i]] = 10.0;
 					}
 				}
 			}
 		}
 		
-		JSONArray degrees = new JSONArray();
-		for(String clazzName : hashmap.keySet()) {
-			JSONObject degre = new JSONObject();
-			degre.put("name", clazzName);
-			degre.put("degree", hashmap.get(clazzName));
-			degrees.add(degre);
+		Map<String, Double> degrees = new LinkedHashMap<String, Double>();
+		for(int ordinal = 0; ordinal < degreesByClass.length; ordinal++) {
+			degrees.put(symbols.getClass(ordinal).getIRI().getFragment(), degreesByClass[ordinal]);
 		}
+		return degrees;
+	}
+	
+	/*
+	 * Same degrees, from the reasoner of the module of the individual: the classes outside the module are not
+	 * types of the individual (degree 0), and the direct subclasses come from the taxonomy shown in the hierarchy.
+	 */
+	private Map<String, Double> calculateMembershipModular(OWLNamedIndividual individu) throws OWLOntologyCreationException {
+		SimpleFuzzyReasoner moduleReasoner = modularReasoner.getModuleReasoner(individu);
+		SymbolTable moduleSymbols = moduleReasoner.getSymbolTable();
+		double[] moduleDegrees = moduleReasoner.calculateClassDegrees(individu);
+		Taxonomy taxonomy = hierarchyGenerator.getTaxonomy();
 		
+		Map<OWLClass, Double> degreesByClass = new LinkedHashMap<OWLClass, Double>();
+		for(OWLClass clazz : taxonomy.getClasses()) {
+			degreesByClass.put(clazz, 0.0);
+		}
+		for(int ordinal = 0; ordinal < moduleDegrees.length; ordinal++) {
+			degreesByClass.put(moduleSymbols.getClass(ordinal), moduleDegrees[ordinal]);
+		}
 		
-		try {
-			FileWriter file = null;
-			try {
-				file = new FileWriter("D:\\Development\\Workspace\\Java\\FLOCI\\src\\com\\handi\\floci\\modules\\display\\degrees.json");
-				file.write(degrees.toJSONString());
-			} catch(Exception e) {
-				e.printStackTrace();
-			} finally {
-				try {
-					file.flush();
-					file.close();
-				} catch (IOException e1) {
-					e1.printStackTrace();
+		for(int ordinal = 0; ordinal < moduleDegrees.length; ordinal++) {
+			OWLClass clazz = moduleSymbols.getClass(ordinal);
+			if(degreesByClass.get(clazz) != 1.0 || !taxonomy.contains(clazz)) continue;
+			
+			List<OWLClass> children = taxonomy.getChildren(clazz);
+			double maxDegree = 0;
+			for(OWLClass child : children) {
+				Double childDegree = degreesByClass.get(child);
+				if(childDegree != null) maxDegree = Math.max(maxDegree, childDegree);
+			}
+			if(!children.isEmpty() && maxDegree == 0.0) {
+				degreesByClass.put(clazz, 10.0);
+				for(OWLClass child : children) {
+					degreesByClass.put(child, 10.0);
 				}
 			}
-		} catch(Exception e) {
-			e.printStackTrace();
 		}
+		
+		Map<String, Double> degrees = new LinkedHashMap<String, Double>();
+		for(Map.Entry<OWLClass, Double> degree : degreesByClass.entrySet()) {
+			degrees.put(degree.getKey().getIRI().getFragment(), degree.getValue());
+		}
+		return degrees;
 	}
 }
@@ -0,0 +1,244 @@
+package com.handi.floci.modules.individualclassification;
+
+/*
+ * Compiled membership function of a fuzzy datatype.
+ * Instances are immutable, one subclass per function type, so evaluating a degree
+ * costs neither an allocation nor a string comparison.
+ */
+public abstract class MembershipFunction {
+	protected final double a, b;
+
+	protected MembershipFunction(double a, double b) {
+		this.a = a;
+		this.b = b;
+	}
+
+	// Degree rounded to two decimals, as displayed to the user
+	public final double getDegree(double x) {
+		return round(evaluate(x));
+	}
+
+	public abstract double evaluate(double x);
+
+	/*
+	 * Degrees of values[from .. to-1] written into degrees[from .. to-1], same results as getDegree.
+	 * A whole column is evaluated in one loop, without boxing nor a call per value from the caller.
+	 */
+	public final void degrees(double[] values, double[] degrees, int from, int to) {
+		for(int i = from; i < to; i++) {
+			degrees[i] = round(evaluate(values[i]));
+		}
+	}
+
+	public final double[] degrees(double[] values) {
+		double[] degrees = new double[values.length];
+		degrees(values, degrees, 0, values.length);
+		return degrees;
+	}
+
+	public abstract String getType();
+
+	/*
+	 * Interval {min, max} of the values whose degree (as returned by getDegree) may be >= alpha,
+	 * null if there are none. The interval is widened by half a rounding step, so it can contain
+	 * a few values whose degree is just below alpha: callers check the degrees of what they find.
+	 */
+	public double[] getAlphaCut(double alpha) {
+		double level = alpha - 0.005 - 1e-9;
+		if(level <= 0) return new double[] { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+		if(level > 1) return null;
+		return alphaCut(level);
+	}
+
+	// Interval of the x such that evaluate(x) >= level, 0 < level <= 1
+	protected abstract double[] alphaCut(double level);
+
+	public double getA() {
+		return a;
+	}
+
+	public double getB() {
+		return b;
+	}
+
+	protected static double round(double val) {
+		val = val*100;
+		val = Math.round(val);
+		val = val /100;
+		return val;
+	}
+
+	public static final class LeftShoulder extends MembershipFunction {
+		public LeftShoulder(double a, double b) {
+			super(a, b);
+		}
+
+		@Override
+		public double evaluate(double x) {
+			if(x <= a) return 1;
+			if(x >= b) return 0;
+			return (b-x)/(b-a);
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			return new double[] { Double.NEGATIVE_INFINITY, b - level*(b-a) };
+		}
+
+		@Override
+		public String getType() {
+			return "leftshoulder";
+		}
+	}
+
+	public static final class RightShoulder extends MembershipFunction {
+		public RightShoulder(double a, double b) {
+			super(a, b);
+		}
+
+		@Override
+		public double evaluate(double x) {
+			if(x <= a) return 0;
+			if(x >= b) return 1;
+			return (x-a)/(b-a);
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			return new double[] { a + level*(b-a), Double.POSITIVE_INFINITY };
+		}
+
+		@Override
+		public String getType() {
+			return "rightshoulder";
+		}
+	}
+
+	public static final class Triangular extends MembershipFunction {
+		private final double c;
+
+		public Triangular(double a, double b, double c) {
+			super(a, b);
+			this.c = c;
+		}
+
+		@Override
+		public double evaluate(double x) {
+			if(x <= a) return 0;
+			if(x >= c) return 0;
+			if(x > a && x < b) return (x-a)/(b-a);
+			return (c-x)/(c-b);
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			return new double[] { a + level*(b-a), c - level*(c-b) };
+		}
+
+		@Override
+		public String getType() {
+			return "triangular";
+		}
+
+		public double getC() {
+			return c;
+		}
+	}
+
+	public static final class Trapezoidal extends MembershipFunction {
+		private final double c, d;
+
+		public Trapezoidal(double a, double b, double c, double d) {
+			super(a, b);
+			this.c = c;
+			this.d = d;
+		}
+
+		@Override
+		public double evaluate(double x) {
+			if(x <= a) return 0;
+			if(x >= d) return 0;
+			if(x > a && x < b) return (x-a)/(b-a);
+			if(x >= b && x <= c) return 1;
+			return (d-x)/(d-c);
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			return new double[] { a + level*(b-a), d - level*(d-c) };
+		}
+
+		@Override
+		public String getType() {
+			return "trapezoidal";
+		}
+
+		public double getC() {
+			return c;
+		}
+
+		public double getD() {
+			return d;
+		}
+	}
+
+	// Goes from (k1, 0) to (a, b) then to (k2, 1), k1 and k2 being the bounds of the datatype
+	public static final class Linear extends MembershipFunction {
+		private final double k1, k2;
+
+		public Linear(double k1, double k2, double a, double b) {
+			super(a, b);
+			this.k1 = k1;
+			this.k2 = k2;
+		}
+
+		@Override
+		public double evaluate(double x) {
+			if(x <= k1) return 0;
+			if(x >= k2) return 1;
+			if(x <= a) return b*(x-k1)/(a-k1);
+			return b + (1-b)*(x-a)/(k2-a);
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			if(level <= b) return new double[] { k1 + level/b*(a-k1), Double.POSITIVE_INFINITY };
+			return new double[] { a + (level-b)/(1-b)*(k2-a), Double.POSITIVE_INFINITY };
+		}
+
+		@Override
+		public String getType() {
+			return "linear";
+		}
+
+		public double getK1() {
+			return k1;
+		}
+
+		public double getK2() {
+			return k2;
+		}
+	}
+
+	// Stands for a fuzzy label that does not parse: every value has degree 0
+	public static final class Zero extends MembershipFunction {
+		public Zero() {
+			super(0, 0);
+		}
+
+		@Override
+		public double evaluate(double x) {
+			return 0;
+		}
+
+		@Override
+		protected double[] alphaCut(double level) {
+			return null;
+		}
+
+		@Override
+		public String getType() {
+			return "zero";
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLDataIntersectionOf;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLDatatypeDefinitionAxiom;
+import org.semanticweb.owlapi.model.OWLDatatypeRestriction;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLFacetRestriction;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.vocab.OWLFacet;
+
+/*
+ * The membership functions of all the fuzzy datatypes of the ontology, compiled once at load time.
+ * A fuzzyLabel that does not parse compiles to MembershipFunction.Zero: the datatype stays fuzzy, of degree 0,
+ * and the parser message is kept in getErrors until the label is compiled again.
+ */
+public class MembershipFunctionRegistry implements OWLOntologyChangeListener {
+	private final OWLOntology ontology;
+	private final OWLAnnotationProperty label;
+	private final Map<OWLDatatype, MembershipFunction> functions = new HashMap<OWLDatatype, MembershipFunction>();
+	private final Map<OWLDatatype, String> errors = new LinkedHashMap<OWLDatatype, String>();
+
+	public MembershipFunctionRegistry(OWLOntology ontology, OWLAnnotationProperty label) {
+		this.ontology = ontology;
+		this.label = label;
+		for(OWLDatatype datatype : ontology.getDatatypesInSignature(true)) {
+			compile(datatype);
+		}
+	}
+
+	// null if the datatype is not a fuzzy datatype
+	public MembershipFunction get(OWLDatatype datatype) {
+		return functions.get(datatype);
+	}
+
+	public Map<OWLDatatype, MembershipFunction> getFunctions() {
+		return Collections.unmodifiableMap(functions);
+	}
+
+	// The datatypes whose fuzzyLabel does not parse, with the parser message
+	public Map<OWLDatatype, String> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	private void compile(OWLDatatype datatype) {
+		functions.remove(datatype);
+		errors.remove(datatype);
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLAnnotation annotation : datatype.getAnnotations(ont, label)) {
+				String value = annotation.getValue() instanceof OWLLiteral ?
+						((OWLLiteral) annotation.getValue()).getLiteral() : annotation.getValue().toString();
+				double[] bounds = getBounds(datatype);
+				try {
+					functions.put(datatype, Parser.parse(value, bounds[0], bounds[1]));
+				} catch(IllegalArgumentException e) {
+					// Still a fuzzy datatype, of which no value is a member
+					functions.put(datatype, new MembershipFunction.Zero());
+					errors.put(datatype, e.getMessage());
+				}
+				return;
+			}
+		}
+	}
+
+	// Bounds given by the definition of the datatype, e.g. xsd:double[>= 0.0, <= 100.0]
+	private double[] getBounds(OWLDatatype datatype) {
+		double[] bounds = { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLDatatypeDefinitionAxiom definition : ont.getDatatypeDefinitions(datatype)) {
+				readBounds(definition.getDataRange(), bounds);
+			}
+		}
+		return bounds;
+	}
+
+	private void readBounds(OWLDataRange range, double[] bounds) {
+		if(range instanceof OWLDataIntersectionOf) {
+			for(OWLDataRange operand : ((OWLDataIntersectionOf) range).getOperands()) {
+				readBounds(operand, bounds);
+			}
+		} else if(range instanceof OWLDatatypeRestriction) {
+			for(OWLFacetRestriction facet : ((OWLDatatypeRestriction) range).getFacetRestrictions()) {
+				try {
+					double k = facet.getFacetValue().parseDouble();
+					if(facet.getFacet() == OWLFacet.MIN_INCLUSIVE || facet.getFacet() == OWLFacet.MIN_EXCLUSIVE)
+						bounds[0] = k;
+					else if(facet.getFacet() == OWLFacet.MAX_INCLUSIVE || facet.getFacet() == OWLFacet.MAX_EXCLUSIVE)
+						bounds[1] = k;
+				} catch(NumberFormatException e) {
+					// not a numerical facet
+				}
+			}
+		}
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		Set<OWLOntology> closure = ontology.getImportsClosure();
+		for(OWLOntologyChange change : changes) {
+			if(!closure.contains(change.getOntology()) || !(change instanceof OWLAxiomChange)) continue;
+			OWLAxiom axiom = ((OWLAxiomChange) change).getAxiom();
+
+			if(axiom.isOfType(AxiomType.ANNOTATION_ASSERTION)) {
+				OWLAnnotationAssertionAxiom annotationAxiom = (OWLAnnotationAssertionAxiom) axiom;
+				if(annotationAxiom.getProperty().equals(label) && annotationAxiom.getSubject() instanceof IRI) {
+					for(OWLEntity entity : ontology.getEntitiesInSignature((IRI) annotationAxiom.getSubject(), true)) {
+						if(entity.isOWLDatatype()) compile(entity.asOWLDatatype());
+					}
+				}
+			} else if(axiom.isOfType(AxiomType.DATATYPE_DEFINITION)) {
+				compile(((OWLDatatypeDefinitionAxiom) axiom).getDatatype());
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import com.handi.floci.modules.reasoning.ModuleExtractor;
+import com.handi.floci.modules.reasoning.ReasonerLifecycle;
+import com.handi.floci.modules.reasoning.ReasonerSelection;
+
+/*
+ * Classifies one individual against the locality module of its neighbourhood in the ABox (the individuals
+ * the assertions connect it to), with a SimpleFuzzyReasoner of its own over the module: the cost follows
+ * the neighbourhood of the individual, not the size of the ontology. The module does not depend on the
+ * classes asked for: a class outside of it is not a type of the individual, of degree 0.
+ * The module reasoners are cached by neighbourhood, shared by all the individuals of one, and all dropped
+ * when the ontology is edited; the membership functions are shared with the reasoner of the whole ontology,
+ * which keeps them current.
+ */
+public class ModularFuzzyReasoner implements OWLOntologyChangeListener {
+	public static final int DEFAULT_CAPACITY = 16;
+	private static final int MODULE_CACHE_CAPACITY = 10000;
+
+	private final OWLOntologyManager manager;
+	private final ModuleExtractor extractor;
+	private final MembershipFunctionRegistry membershipFunctions;
+	private final LinkedHashMap<Set<OWLNamedIndividual>, SimpleFuzzyReasoner> modules;
+	// Neighbourhood of the individuals already asked for, until the next edit
+	private final Map<OWLNamedIndividual, Set<OWLNamedIndividual>> neighbourhoods =
+			new HashMap<OWLNamedIndividual, Set<OWLNamedIndividual>>();
+
+	public ModularFuzzyReasoner(OWLOntology ontology, OWLOntologyManager manager,
+			MembershipFunctionRegistry membershipFunctions) {
+		this(ontology, manager, membershipFunctions, DEFAULT_CAPACITY);
+	}
+
+	public ModularFuzzyReasoner(OWLOntology ontology, OWLOntologyManager manager,
+			MembershipFunctionRegistry membershipFunctions, final int capacity) {
+		this.manager = manager;
+		this.extractor = new ModuleExtractor(manager, ontology);
+		this.membershipFunctions = membershipFunctions;
+		// access ordered map = LRU eviction once the capacity is reached
+		this.modules = new LinkedHashMap<Set<OWLNamedIndividual>, SimpleFuzzyReasoner>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Set<OWLNamedIndividual>, SimpleFuzzyReasoner> eldest) {
+				if(size() <= capacity) return false;
+				disposeModule(eldest.getValue());
+				return true;
+			}
+		};
+		manager.addOntologyChangeListener(this);
+	}
+
+	// Degree of one class, over the module of the individual
+	public synchronized double calculateClassDegree(OWLClass clazz, OWLNamedIndividual individu)
+			throws OWLOntologyCreationException {
+		SimpleFuzzyReasoner moduleReasoner = getModuleReasoner(individu);
+		if(moduleReasoner.getSymbolTable().getClassOrdinal(clazz) < 0) return 0;
+		return moduleReasoner.calculateClassDegree(clazz, individu);
+	}
+
+	/*
+	 * The reasoner over the module of the individual, its classes being those that can be types of the individual.
+	 * Used by one thread at a time, like any SimpleFuzzyReasoner.
+	 */
+	public synchronized SimpleFuzzyReasoner getModuleReasoner(OWLNamedIndividual individu) throws OWLOntologyCreationException {
+		Set<OWLNamedIndividual> neighbourhood = neighbourhoods.get(individu);
+		if(neighbourhood == null) {
+			neighbourhood = extractor.getConnectedIndividuals(individu);
+			for(OWLNamedIndividual connected : neighbourhood) {
+				neighbourhoods.put(connected, neighbourhood);
+			}
+		}
+
+		SimpleFuzzyReasoner moduleReasoner = modules.get(neighbourhood);
+		if(moduleReasoner == null) {
+			OWLOntology module = extractor.extractAsOntology(new HashSet<OWLEntity>(neighbourhood));
+			OWLOntologyManager moduleManager = module.getOWLOntologyManager();
+			// The module may fall in a cheaper profile than the whole ontology
+			OWLReasoner reasoner = ReasonerSelection.select(module).getReasoner();
+			moduleReasoner = new SimpleFuzzyReasoner(reasoner, new ReasonerLifecycle(reasoner, moduleManager), module,
+					moduleManager, new DataValueIndex(module), membershipFunctions, MODULE_CACHE_CAPACITY);
+			modules.put(neighbourhood, moduleReasoner);
+		}
+		return moduleReasoner;
+	}
+
+	// The module of the individual, e.g. to translate it to FuzzyDL; not to be edited
+	public OWLOntology getModule(OWLNamedIndividual individu) throws OWLOntologyCreationException {
+		return getModuleReasoner(individu).getCrispReasoner().getRootOntology();
+	}
+
+	// The module document of the individual
+	public File writeModule(OWLNamedIndividual individu, File file) throws OWLOntologyCreationException,
+			OWLOntologyStorageException {
+		OWLOntology module = getModule(individu);
+		module.getOWLOntologyManager().saveOntology(module, manager.getOntologyFormat(extractor.getOntology()),
+				IRI.create(file));
+		return file;
+	}
+
+	public ModuleExtractor getExtractor() {
+		return extractor;
+	}
+
+	private static void disposeModule(SimpleFuzzyReasoner moduleReasoner) {
+		moduleReasoner.dispose();
+		moduleReasoner.getCrispLifecycle().dispose();
+		moduleReasoner.getCrispReasoner().dispose();
+	}
+
+	public synchronized void clear() {
+		neighbourhoods.clear();
+		for(Iterator<SimpleFuzzyReasoner> it = modules.values().iterator(); it.hasNext();) {
+			disposeModule(it.next());
+			it.remove();
+		}
+	}
+
+	public void dispose() {
+		manager.removeOntologyChangeListener(this);
+		extractor.dispose();
+		clear();
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		// Any edit may bring an axiom into a cached module
+		clear();
+	}
+}
@@ -1,103 +1,53 @@
 package com.handi.floci.modules.individualclassification;
 
+/*
+ * Compiles the fuzzyLabel annotation of a fuzzy datatype, e.g.
+ * <fuzzyOwl2 fuzzyType="datatype"><Datatype type="triangular" a="10" b="20" c="30"/></fuzzyOwl2>
+ * into a MembershipFunction.
+ */
 public class Parser {
-	private double a, b, c, d = 0;
-	private int i;
-	private String type;
-	public Parser(String s) {
-		try {
-			i = s.indexOf(" type") + 5;
-			
-			while(s.charAt(i) != '"') { i++; }
-			i++;
-			type = "";
-			while(s.charAt(i) != '\\') {
-				type += s.charAt(i);
-				i++;
-			}
-			//  ce stade on a le type 
-			a = readParameter(s, 'a'); //  ce stade on a le A
-			b = readParameter(s, 'b'); //  ce stade on a le B
-			if(type.equals("triangular")) {
-				c = readParameter(s, 'c'); //  ce stade on a le C
-				
-			} else if(type.equals("trapezoidal")) {
-				c = readParameter(s, 'c'); //  ce stade on a le C
-				d = readParameter(s, 'd'); //  ce stade on a le D
-			}
-			
-		} catch(Exception e) {
-			System.out.println("Erreur lors du parsssage du label fuzzy");
-		}
-	}
-	
 	
-	private double readParameter(String s, char c) {
-		while(s.charAt(i) != c) { i++;}
-		while(s.charAt(i) != '"') { i++; }
-		i++;
-		String cString = "";
-		while(s.charAt(i) != '\\') {
-			cString += s.charAt(i);
-			i++;
+	private Parser() {}
+	
+	// k1 and k2 are the bounds of the datatype, only the linear function needs them
+	public static MembershipFunction parse(String label, double k1, double k2) {
+		// The label may come quoted and escaped from OWLLiteral.toString()
+		String s = label.replace("\\\"", "\"");
+		
+		String type = readAttribute(s, "type");
+		if(type.equals("leftshoulder"))
+			return new MembershipFunction.LeftShoulder(readParameter(s, "a"), readParameter(s, "b"));
+		if(type.equals("rightshoulder"))
+			return new MembershipFunction.RightShoulder(readParameter(s, "a"), readParameter(s, "b"));
+		if(type.equals("triangular"))
+			return new MembershipFunction.Triangular(readParameter(s, "a"), readParameter(s, "b"), readParameter(s, "c"));
+		if(type.equals("trapezoidal"))
+			return new MembershipFunction.Trapezoidal(readParameter(s, "a"), readParameter(s, "b"),
+					readParameter(s, "c"), readParameter(s, "d"));
+		if(type.equals("linear")) {
+			if(Double.isInfinite(k1) || Double.isInfinite(k2))
+				throw new IllegalArgumentException("linear function without datatype bounds");
+			return new MembershipFunction.Linear(k1, k2, readParameter(s, "a"), readParameter(s, "b"));
 		}
-		return Double.parseDouble(cString);
+		throw new IllegalArgumentException("unsupported fuzzy datatype type \"" + type + "\"");
 	}
 	
-	
-	public double getDegree(double x) {
+	private static double readParameter(String s, String name) {
+		String value = readAttribute(s, name);
 		try {
-			if(type.equals("leftshoulder")) {
-				return round(leftShoulder(x, a, b));
-			}
-			if(type.equals("rightshoulder")) {
-				return round(rightShoulder(x, a, b));
-			}
-			if(type.equals("triangular")) {
-				return round(triangular(x, a, b, c));
-			}
-			if(type.equals("trapezoidal")) {
-				return round(trapezoidal(x, a, b, c, d));
-			}
-			return 0;
-		} catch(Exception e) {
-			return 0;
+			return Double.parseDouble(value.trim());
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("parameter " + name + " is not a number: \"" + value + "\"");
 		}
 	}
 	
-	public double leftShoulder(double x, double a, double b) {
-		if(x <= a) return 1;
-		if(x >= b) return 0;
-		double resultat = (b-x)/(b-a);
-		return resultat;
-	}
-	
-	public double rightShoulder(double x, double a, double b) {
-		if(x <= a) return 0;
-		if(x >= b) return 1;
-		double resultat = (x-a)/(b-a);
-		return resultat;		
-	}
-	
-	public double triangular(double x, double a, double b, double c) {
-		if(x <= a) return 0;
-		if(x >= c) return 0;
-		if(x > a && x < b) return (x-a)/(b-a);
-		return (c-x)/(c-b);
-	}
-	
-	public double trapezoidal(double x, double a, double b, double c, double d) {
-		if(x <= a) return 0;
-		if(x >= d) return 0;
-		if(x > a && x < b) return (x-a)/(b-a);
-		if(x >b && x < c) return 1;
-		return (d-x)/(d-c);
-	}
-	
-	private double round(double val) {
-		val = val*100;
-		val = Math.round(val);
-		val = val /100;
-		return val;
+	private static String readAttribute(String s, String name) {
+		String key = " " + name + "=\"";
+		int start = s.indexOf(key);
+		if(start < 0) throw new IllegalArgumentException("missing attribute " + name);
+		start += key.length();
+		int end = s.indexOf('"', start);
+		if(end < 0) throw new IllegalArgumentException("unterminated attribute " + name);
+		return s.substring(start, end);
 	}
 }
@@ -0,0 +1,101 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import com.handi.floci.modules.reasoning.SymbolTable;
+
+/*
+ * The named types of the individuals, realized once per individual with a single getTypes call
+ * and kept as a bitset over the class ordinals. Bounded (least recently used individuals are dropped),
+ * cleared by any logical change since a single assertion can change the types of other individuals.
+ */
+public class RealizedTypes implements OWLOntologyChangeListener {
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private final OWLReasoner reasoner;
+	private final LinkedHashMap<OWLNamedIndividual, BitSet> types;
+	private SymbolTable symbols;
+	// Types known without the reasoner (restored from a snapshot), until the next logical change
+	private Map<OWLNamedIndividual, Set<OWLClass>> restored = Collections.emptyMap();
+
+	public RealizedTypes(OWLReasoner reasoner, final int capacity) {
+		this.reasoner = reasoner;
+		this.types = new LinkedHashMap<OWLNamedIndividual, BitSet>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<OWLNamedIndividual, BitSet> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// Types of the individual, by class ordinal of the symbol table; the reasoner must be up to date
+	public BitSet get(OWLNamedIndividual individu, SymbolTable symbolTable) {
+		if(symbolTable != symbols) { // new ordinals
+			types.clear();
+			symbols = symbolTable;
+		}
+		BitSet individuTypes = types.get(individu);
+		if(individuTypes == null) {
+			individuTypes = new BitSet(symbols.getClassCount());
+			Set<OWLClass> known = restored.get(individu);
+			for(OWLClass type : known != null ? known : reasoner.getTypes(individu, false).getFlattened()) {
+				int ordinal = symbols.getClassOrdinal(type);
+				if(ordinal >= 0) individuTypes.set(ordinal);
+			}
+			types.put(individu, individuTypes);
+		}
+		return individuTypes;
+	}
+
+	// The types of the individuals of the current ontology, as the reasoner would realize them
+	public void restore(Map<OWLNamedIndividual, Set<OWLClass>> restoredTypes) {
+		restored = restoredTypes;
+		types.clear();
+	}
+
+	// The types known so far (restored or realized), e.g. to be saved with the classification
+	public Map<OWLNamedIndividual, Set<OWLClass>> getKnownTypes() {
+		Map<OWLNamedIndividual, Set<OWLClass>> known = new HashMap<OWLNamedIndividual, Set<OWLClass>>(restored);
+		for(Map.Entry<OWLNamedIndividual, BitSet> entry : types.entrySet()) {
+			if(known.containsKey(entry.getKey())) continue;
+			Set<OWLClass> individuTypes = new HashSet<OWLClass>();
+			BitSet bits = entry.getValue();
+			for(int ordinal = bits.nextSetBit(0); ordinal >= 0; ordinal = bits.nextSetBit(ordinal + 1)) {
+				individuTypes.add(symbols.getClass(ordinal));
+			}
+			known.put(entry.getKey(), individuTypes);
+		}
+		return known;
+	}
+
+	public void clear() {
+		types.clear();
+		restored = Collections.emptyMap();
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		for(OWLOntologyChange change : changes) {
+			if(!(change instanceof OWLAxiomChange) || ((OWLAxiomChange) change).getAxiom().isLogicalAxiom()) {
+				clear();
+				return;
+			}
+		}
+	}
+}
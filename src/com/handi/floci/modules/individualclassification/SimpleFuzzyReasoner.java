@@ -1,23 +1,24 @@
 package com.handi.floci.modules.individualclassification;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.AxiomType;
 import org.semanticweb.owlapi.model.IRI;
-import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationProperty;
-import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataAllValuesFrom;
 import org.semanticweb.owlapi.model.OWLDataCardinalityRestriction;
 import org.semanticweb.owlapi.model.OWLDataMinCardinality;
 import org.semanticweb.owlapi.model.OWLDataProperty;
-import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
 import org.semanticweb.owlapi.model.OWLDataRange;
 import org.semanticweb.owlapi.model.OWLDataSomeValuesFrom;
@@ -27,10 +28,23 @@ import org.semanticweb.owlapi.model.OWLObjectComplementOf;
 import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
 import org.semanticweb.owlapi.model.OWLObjectUnionOf;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import com.handi.floci.modules.reasoning.HermiTBackend;
+import com.handi.floci.modules.reasoning.ReasonerLifecycle;
+import com.handi.floci.modules.reasoning.SymbolTable;
 
 public class SimpleFuzzyReasoner {
-	private Reasoner crispReasoner;
+	private OWLReasoner crispReasoner;
+	private ReasonerLifecycle crispLifecycle;
+	// Created by this reasoner (3-argument constructor), so disposed with it
+	private boolean ownsCrispLifecycle;
+	// Membership of the anonymous expressions: HermiT, the crisp reasoner itself if it is HermiT
+	private Reasoner entailmentReasoner;
+	private ReasonerLifecycle entailmentLifecycle;
 	private OWLOntology ontology;
 	private OWLOntologyManager manager;
 	private String ontologyPath;
@@ -39,19 +53,112 @@ public class SimpleFuzzyReasoner {
 	private OWLNamedIndividual individu;
 	private Set<OWLClass> individuClasses;
 	
-	public SimpleFuzzyReasoner(Reasoner crispReasoner, OWLOntology ontology, OWLOntologyManager manager) {
+	private TruthDegreeCache degreeCache;
+	private DataValueIndex dataValues;
+	private MembershipFunctionRegistry membershipFunctions;
+	private RealizedTypes realizedTypes;
+	
+	// Compiled on first use, dropped when the class definitions change
+	private EvaluationDag evaluationDag;
+	// Built on first use, apart from the DAG: looking up an ordinal does not compile the definitions
+	private SymbolTable symbolTable;
+	private final OWLOntologyChangeListener definitionsListener = new OWLOntologyChangeListener() {
+		@Override
+		public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+			SymbolTable symbols = symbolTable;
+			boolean individualsChanged = false;
+			for(OWLOntologyChange change : changes) {
+				// Assertions about individuals leave the definitions unchanged
+				if(!(change instanceof OWLAxiomChange)
+						|| !((OWLAxiomChange) change).getAxiom().isOfType(AxiomType.ABoxAxiomTypes)) {
+					evaluationDag = null;
+					symbolTable = null;
+					return;
+				}
+				// ... but may add individuals to the signature, or remove the last mention of some
+				if(symbols == null || individualsChanged) continue;
+				for(OWLNamedIndividual individual : ((OWLAxiomChange) change).getAxiom().getIndividualsInSignature()) {
+					boolean known = symbols.getIndividualOrdinal(individual) >= 0;
+					if(change instanceof AddAxiom ? !known
+							: known && !ontology.containsIndividualInSignature(individual.getIRI(), true)) {
+						individualsChanged = true;
+					}
+				}
+			}
+			// Same classes, hence the same class ordinals: the DAG stays valid
+			if(individualsChanged) symbolTable = symbols.withIndividuals(ontology.getIndividualsInSignature(true));
+		}
+	};
+	
+	public SimpleFuzzyReasoner(OWLReasoner crispReasoner, OWLOntology ontology, OWLOntologyManager manager) {
+		this(crispReasoner, new ReasonerLifecycle(crispReasoner, manager), ontology, manager, TruthDegreeCache.DEFAULT_CAPACITY);
+		ownsCrispLifecycle = true;
+	}
+	
+	public SimpleFuzzyReasoner(OWLReasoner crispReasoner, ReasonerLifecycle crispLifecycle, OWLOntology ontology,
+			OWLOntologyManager manager, int cacheCapacity) {
+		this(crispReasoner, crispLifecycle, ontology, manager,
+				new MembershipFunctionRegistry(ontology, getFuzzyLabelProperty(ontology, manager)), cacheCapacity);
+		this.manager.addOntologyChangeListener(membershipFunctions);
+	}
+	
+	// The membership functions compiled by the caller, e.g. at load time, who keeps them current
+	public SimpleFuzzyReasoner(OWLReasoner crispReasoner, ReasonerLifecycle crispLifecycle, OWLOntology ontology,
+			OWLOntologyManager manager, MembershipFunctionRegistry membershipFunctions, int cacheCapacity) {
+		this(crispReasoner, crispLifecycle, ontology, manager, new DataValueIndex(ontology), membershipFunctions, cacheCapacity);
+		
+		// This reasoner owns its data value index: keep it current with the edits made through the manager
+		this.manager.addOntologyChangeListener(dataValues);
+	}
+	
+	// The indexes are shared (e.g. between the workers of a BatchClassifier), their owner keeps them current
+	public SimpleFuzzyReasoner(OWLReasoner crispReasoner, ReasonerLifecycle crispLifecycle, OWLOntology ontology,
+			OWLOntologyManager manager, DataValueIndex dataValues, MembershipFunctionRegistry membershipFunctions,
+			int cacheCapacity) {
 		this.crispReasoner = crispReasoner; 
+		this.crispLifecycle = crispLifecycle;
 		this.ontology = ontology;
 		this.manager = manager;
 		
 		ontologyPath = this.ontology.getOntologyID().getOntologyIRI().toString();
-		label = this.manager.getOWLDataFactory().getOWLAnnotationProperty(IRI.create(ontologyPath + "#" + "fuzzyLabel"));
+		label = getFuzzyLabelProperty(ontology, manager);
+		
+		// Keep the cached degrees in sync with the edits made through the manager
+		degreeCache = new TruthDegreeCache(ontology, cacheCapacity);
+		this.manager.addOntologyChangeListener(degreeCache);
+		
+		this.dataValues = dataValues;
+		// Compiled once, instead of parsing the fuzzy label on every evaluation
+		this.membershipFunctions = membershipFunctions;
+		this.manager.addOntologyChangeListener(definitionsListener);
+		
+		// One getTypes call per individual instead of one hasType call per named class
+		realizedTypes = new RealizedTypes(crispReasoner, RealizedTypes.DEFAULT_CAPACITY);
+		this.manager.addOntologyChangeListener(realizedTypes);
+	}
+	
+	public static OWLAnnotationProperty getFuzzyLabelProperty(OWLOntology ontology, OWLOntologyManager manager) {
+		String ontologyPath = ontology.getOntologyID().getOntologyIRI().toString();
+		return manager.getOWLDataFactory().getOWLAnnotationProperty(IRI.create(ontologyPath + "#" + "fuzzyLabel"));
 	}
 	
 	public double calculateTruthDegree(OWLClassExpression clazz, OWLNamedIndividual individu) {
-		crispReasoner.classifyClasses();
+		// Classify once, and again only if the ontology changed since
+		crispLifecycle.ensureClassified();
+		return degreeOf(clazz, individu);
+	}
+	
+	private double degreeOf(OWLClassExpression clazz, OWLNamedIndividual individu) {
+		Double cached = degreeCache.get(clazz, individu);
+		if(cached != null) return cached;
 		
-		if(crispReasoner.hasType(individu, clazz, false)) { //l'individu appartient  la classe expression
+		double degree = computeTruthDegree(clazz, individu);
+		degreeCache.put(clazz, individu, degree);
+		return degree;
+	}
+	
+	private double computeTruthDegree(OWLClassExpression clazz, OWLNamedIndividual individu) {
+		if(isInstance(clazz, individu)) { //l'individu appartient  la classe expression
 			switch (clazz.getClassExpressionType()) {
 			
 				case OWL_CLASS: // Si l'expression est une classe elle est donc atomique = non flou (degr d'appartenance 1)  			
@@ -67,34 +174,31 @@ public class SimpleFuzzyReasoner {
 					return 1;
 					
 				case OBJECT_COMPLEMENT_OF:
-					return 1 - calculateTruthDegree(((OWLObjectComplementOf) clazz).getOperand(), individu); 
+					return 1 - degreeOf(((OWLObjectComplementOf) clazz).getOperand(), individu); 
 					
 				case OBJECT_INTERSECTION_OF:
-					return Collections.min(getOperandsDegrees(((OWLObjectIntersectionOf) clazz).getOperands(), individu)); 
+					return minDegree(((OWLObjectIntersectionOf) clazz).getOperands(), individu); 
 					
 				case OBJECT_UNION_OF:
-					return Collections.max(getOperandsDegrees(((OWLObjectUnionOf) clazz).getOperands(), individu)); 
+					return maxDegree(((OWLObjectUnionOf) clazz).getOperands(), individu); 
 					
 				case DATA_SOME_VALUES_FROM:
 					OWLDataProperty dataProperty = ((OWLDataSomeValuesFrom) clazz).getProperty().asOWLDataProperty();
 					OWLDataRange range = ((OWLDataSomeValuesFrom) clazz).getFiller();
-					if (range == null) // Restriction not qualified
-						return Collections.min(getDatatypeDegrees(dataProperty, null, individu));
-					// Restriction is qualified
-					try{
-						return Collections.min(getDatatypeDegrees(dataProperty, range.asOWLDatatype(), individu));
-					} catch(Exception e) {
-						// if the range is a default range like : double, or integer.. range.asOWLDataype throws an exception
+					if (range != null && !range.isDatatype()) // e.g. a facet restriction: crisp
 						return 1;
-					}
+					ArrayList<Double> someDegrees = getDatatypeDegrees(dataProperty, range == null || range.isTopDatatype() ? null : range.asOWLDatatype(), individu);
+					// No value: no witness of the restriction
+					return someDegrees.isEmpty() ? 0 : Collections.min(someDegrees);
 					
 			case DATA_ALL_VALUES_FROM:
 					OWLDataProperty allDataProperty = ((OWLDataAllValuesFrom) clazz).getProperty().asOWLDataProperty();
-					OWLDataRange allRange = ((OWLDataSomeValuesFrom) clazz).getFiller();
-					if (allRange == null) // Restriction not qualified
-						return Collections.min(getDatatypeDegrees(allDataProperty, null, individu));
-					// Restriction is qualified
-					return Collections.min(getDatatypeDegrees(allDataProperty, allRange.asOWLDatatype(), individu));
+					OWLDataRange allRange = ((OWLDataAllValuesFrom) clazz).getFiller();
+					if (allRange != null && !allRange.isDatatype()) // e.g. a facet restriction: crisp
+						return 1;
+					ArrayList<Double> allDegrees = getDatatypeDegrees(allDataProperty, allRange == null || allRange.isTopDatatype() ? null : allRange.asOWLDatatype(), individu);
+					// No value: nothing violates the restriction
+					return allDegrees.isEmpty() ? 1 : Collections.min(allDegrees);
 				
 				case DATA_MAX_CARDINALITY:
 					OWLDataCardinalityRestriction maxCardinality = (OWLDataCardinalityRestriction) clazz;
@@ -102,7 +206,7 @@ public class SimpleFuzzyReasoner {
 					int maxCard = maxCardinality.getCardinality();
 					ArrayList<Double> acceptableDegrees_max;
 					if(maxCardinality.isQualified()) {
-						OWLDatatype maxRange = ((OWLDataCardinalityRestriction) clazz).getFiller().asOWLDatatype();
+						OWLDatatype maxRange = getQualifyingDatatype(maxCardinality);
 						acceptableDegrees_max = getAcceptableDegreesForDatatype(maxDataProperty, maxRange, individu);
 					} else {
 						acceptableDegrees_max = getAcceptableDegreesForDatatype(maxDataProperty, null, individu);
@@ -119,7 +223,7 @@ public class SimpleFuzzyReasoner {
 					int minCard = minCardinality.getCardinality();
 					ArrayList<Double> acceptableDegrees_min;
 					if(minCardinality.isQualified()) {
-						OWLDatatype minRange = ((OWLDataCardinalityRestriction) clazz).getFiller().asOWLDatatype();
+						OWLDatatype minRange = getQualifyingDatatype(minCardinality);
 						acceptableDegrees_min = getAcceptableDegreesForDatatype(minDataProperty, minRange, individu);
 					} else {
 						acceptableDegrees_min = getAcceptableDegreesForDatatype(minDataProperty, null, individu);
@@ -131,12 +235,12 @@ public class SimpleFuzzyReasoner {
 					return 0;
 
 				case DATA_EXACT_CARDINALITY:
-					OWLDataMinCardinality exactCardinality = (OWLDataMinCardinality) clazz;
+					OWLDataCardinalityRestriction exactCardinality = (OWLDataCardinalityRestriction) clazz;
 					OWLDataProperty exactDataProperty = exactCardinality.getProperty().asOWLDataProperty();
 					int exactCard = exactCardinality.getCardinality();
 					ArrayList<Double> acceptableDegrees_exact;
 					if(exactCardinality.isQualified()) {
-						OWLDatatype exactRange = ((OWLDataCardinalityRestriction) clazz).getFiller().asOWLDatatype();
+						OWLDatatype exactRange = getQualifyingDatatype(exactCardinality);
 						acceptableDegrees_exact = getAcceptableDegreesForDatatype(exactDataProperty, exactRange, individu);
 					} else {
 						acceptableDegrees_exact = getAcceptableDegreesForDatatype(exactDataProperty, null, individu);
@@ -153,81 +257,210 @@ public class SimpleFuzzyReasoner {
 		return 0;
 	}
 	
-	public HashMap<String, Double> calculateTruthDegree(Set<OWLClass> clazzes, OWLNamedIndividual individu) {
-		HashMap<String, Double> hashmap = new HashMap<String, Double>();
-		for (OWLClass clazz : clazzes) {
-			Set<OWLClassExpression> equivalentClasses = clazz.getEquivalentClasses(ontology);
-			ArrayList<Double> array = new ArrayList<Double>();
-			array.add(calculateTruthDegree(clazz, individu));
-			for(OWLClassExpression clazzExpression: equivalentClasses) {
-				array.add(calculateTruthDegree(clazzExpression, individu));
+	// Degrees of all the classes of the ontology, indexed by the class ordinals of getSymbolTable()
+	public double[] calculateClassDegrees(OWLNamedIndividual individu) {
+		crispLifecycle.ensureClassified();
+		EvaluationDag.Evaluation evaluation = evaluate(individu);
+		double[] degrees = new double[getSymbolTable().getClassCount()];
+		for(int i = 0; i < degrees.length; i++) {
+			degrees[i] = evaluation.getClassDegree(i);
+		}
+		assert dataRestrictionsAgree(individu);
+		return degrees;
+	}
+	
+	// Checked with -ea: both paths share the degree cache, so the DAG must give the data restrictions the recursive degree
+	private boolean dataRestrictionsAgree(OWLNamedIndividual individu) {
+		for(OWLClassExpression restriction : getEvaluationDag().getDataRestrictions()) {
+			Double cached = degreeCache.get(restriction, individu);
+			if(cached != null && cached != computeTruthDegree(restriction, individu)) {
+				throw new AssertionError(restriction + " of " + individu + ": " + cached + " in the evaluation DAG, "
+						+ computeTruthDegree(restriction, individu) + " by the recursive path");
+			}
+		}
+		return true;
+	}
+	
+	public EvaluationDag getEvaluationDag() {
+		EvaluationDag dag = evaluationDag;
+		if(dag == null) {
+			// New ordinals along with the new definitions, since classes may have been added or removed
+			dag = EvaluationDag.compile(getSymbolTable(), ontology, membershipFunctions);
+			evaluationDag = dag;
+		}
+		return dag;
+	}
+	
+	public SymbolTable getSymbolTable() {
+		SymbolTable symbols = symbolTable;
+		if(symbols == null) {
+			symbols = new SymbolTable(ontology);
+			symbolTable = symbols;
+		}
+		return symbols;
+	}
+	
+	/*
+	 * Starts an evaluation of the DAG for the individual: class degrees are computed when asked for,
+	 * until the next evaluation starts.
+	 */
+	public EvaluationDag.Evaluation evaluate(OWLNamedIndividual individu) {
+		crispLifecycle.ensureClassified();
+		EvaluationDag dag = getEvaluationDag();
+		BitSet types = realizedTypes.get(individu, getSymbolTable());
+		return dag.evaluate(individu, getEntailmentReasoner(), types, dataValues, degreeCache);
+	}
+	
+	// Crisp membership: realized types for the named classes, an entailment check for the anonymous expressions
+	private boolean isInstance(OWLClassExpression clazz, OWLNamedIndividual individu) {
+		if(!clazz.isAnonymous()) {
+			SymbolTable symbols = getSymbolTable();
+			int ordinal = symbols.getClassOrdinal(clazz.asOWLClass());
+			if(ordinal >= 0) return realizedTypes.get(individu, symbols).get(ordinal);
+		}
+		return getEntailmentReasoner().hasType(individu, clazz, false);
+	}
+	
+	// Backends other than HermiT (e.g. ELK) cannot check the class assertions of arbitrary expressions
+	private Reasoner getEntailmentReasoner() {
+		if(entailmentReasoner == null) {
+			if(crispReasoner instanceof Reasoner) {
+				entailmentReasoner = (Reasoner) crispReasoner;
+				entailmentLifecycle = crispLifecycle;
+			} else {
+				entailmentReasoner = HermiTBackend.create(ontology);
+				entailmentLifecycle = new ReasonerLifecycle(entailmentReasoner, manager);
 			}
-			hashmap.put(clazz.getIRI().getFragment(), Collections.min(array));
 		}
-		return hashmap;
+		entailmentLifecycle.ensureUpToDate();
+		return entailmentReasoner;
+	}
+	
+	// Degree of a named class: the minimum over the class itself and its equivalent class expressions
+	public double calculateClassDegree(OWLClass clazz, OWLNamedIndividual individu) {
+		crispLifecycle.ensureClassified();
+		return classDegreeOf(clazz, individu);
+	}
+	
+	private double classDegreeOf(OWLClass clazz, OWLNamedIndividual individu) {
+		Set<OWLClassExpression> equivalentClasses = clazz.getEquivalentClasses(ontology);
+		ArrayList<Double> array = new ArrayList<Double>();
+		array.add(degreeOf(clazz, individu));
+		for(OWLClassExpression clazzExpression: equivalentClasses) {
+			array.add(degreeOf(clazzExpression, individu));
+		}
+		return Collections.min(array);
 	}
 	
-	public HashMap<String, Double> calculateTruthDegree(OWLNamedIndividual individu) {
-		return calculateTruthDegree(ontology.getClassesInSignature(), individu);
+	// Named types of the individuals known from elsewhere (a classification snapshot), instead of realizing them again
+	public void restoreTypes(Map<OWLNamedIndividual, Set<OWLClass>> types) {
+		realizedTypes.restore(types);
 	}
 	
-	public Reasoner getCrispReasoner() {
+	// The named types realized or restored so far, for the classification snapshot
+	public Map<OWLNamedIndividual, Set<OWLClass>> getKnownTypes() {
+		return realizedTypes.getKnownTypes();
+	}
+	
+	public OWLReasoner getCrispReasoner() {
 		return this.crispReasoner;
 	}
 	
+	public ReasonerLifecycle getCrispLifecycle() {
+		return this.crispLifecycle;
+	}
+	
+	public DataValueIndex getDataValueIndex() {
+		return this.dataValues;
+	}
+	
+	public MembershipFunctionRegistry getMembershipFunctions() {
+		return this.membershipFunctions;
+	}
+	
+	public TruthDegreeCache getDegreeCache() {
+		return this.degreeCache;
+	}
+	
+	public void dispose() {
+		manager.removeOntologyChangeListener(degreeCache);
+		manager.removeOntologyChangeListener(dataValues);
+		manager.removeOntologyChangeListener(membershipFunctions);
+		manager.removeOntologyChangeListener(definitionsListener);
+		manager.removeOntologyChangeListener(realizedTypes);
+		realizedTypes.clear();
+		if(ownsCrispLifecycle) crispLifecycle.dispose();
+		if(entailmentReasoner != null && entailmentReasoner != crispReasoner) {
+			entailmentLifecycle.dispose();
+			entailmentReasoner.dispose();
+		}
+		entailmentReasoner = null;
+		degreeCache.clear();
+		evaluationDag = null;
+	}
+	
+	
+	// The filler of a qualified cardinality; null (every value of degree 1) if it is not a datatype, e.g. a facet restriction
+	private static OWLDatatype getQualifyingDatatype(OWLDataCardinalityRestriction cardinality) {
+		OWLDataRange filler = cardinality.getFiller();
+		return filler.isDatatype() ? filler.asOWLDatatype() : null;
+	}
 	
 	private ArrayList<Double> getAcceptableDegreesForDatatype(OWLDataProperty dataProperty, OWLDatatype range, OWLNamedIndividual individu) {
 		ArrayList<Double> degreesForDatatype = getDatatypeDegrees(dataProperty, range, individu);
-		for (int i = 0; i < degreesForDatatype.size(); i++) {
+		// Backwards, so that a removal does not skip the next degree
+		for (int i = degreesForDatatype.size() - 1; i >= 0; i--) {
 			if( degreesForDatatype.get(i) == 0) degreesForDatatype.remove(i);
 		}
 		return degreesForDatatype;
 	}
 	
 	private ArrayList<Double> getDatatypeDegrees(OWLDataProperty dataProperty, OWLDatatype range, OWLNamedIndividual individu) {
-		ArrayList<Double> degreesArray = new ArrayList<Double>();
+		double[] values = dataValues.getValues(individu, dataProperty);
+		ArrayList<Double> degreesArray = new ArrayList<Double>(values.length);
 		if(range == null) { // This restriction is not qualified: R
-			for(OWLAxiom axiom : this.ontology.getAxioms(individu)) {
-	    		String type = axiom.getAxiomType().toString();
-	    		if(type.equals("DataPropertyAssertion")) {
-	    			OWLDataPropertyAssertionAxiom dataAxiom = (OWLDataPropertyAssertionAxiom) axiom;
-        			OWLDataProperty attribut = dataAxiom.getProperty().asOWLDataProperty();
-        			if(attribut.getIRI() == dataProperty.getIRI()) {
-        				degreesArray.add(1.0);
-        			}
-        			
-	    		}
-	    	}
+			for(int i = 0; i < values.length; i++) {
+				degreesArray.add(1.0);
+			}
 		} else { // This restriction is qualified: R.C
-			Iterator<OWLAnnotation> annotations = range.getAnnotations(ontology, label).iterator();
-			if(annotations.hasNext()) {
-				OWLAnnotation annotation = annotations.next();
-				Parser parser = new Parser(annotation.getValue().toString());
-				
-				for(OWLAxiom axiom : this.ontology.getAxioms(individu)) {
-		    		String type = axiom.getAxiomType().toString();
-		    		if(type.equals("DataPropertyAssertion")) {
-		    			OWLDataPropertyAssertionAxiom dataAxiom = (OWLDataPropertyAssertionAxiom) axiom;
-	        			OWLDataProperty attribut = dataAxiom.getProperty().asOWLDataProperty();
-	        			if(attribut.getIRI() == dataProperty.getIRI()) {
-	        				double value = dataAxiom.getObject().parseDouble();
-	        				degreesArray.add(parser.getDegree(value));
-	        			}
-	        			
-		    		}
-		    	}
+			MembershipFunction function = membershipFunctions.get(range);
+			for(int i = 0; i < values.length; i++) {
+				// No fuzzy label: a crisp datatype, left to the crisp reasoner as in the evaluation DAG
+				degreesArray.add(function == null ? 1.0 : function.getDegree(values[i]));
 			}
 		}
 		return degreesArray;
 	}
 	
-	private ArrayList<Double> getOperandsDegrees(Set<OWLClassExpression> operands, OWLNamedIndividual individu) {
-		ArrayList<Double> degreesArray = new ArrayList<Double>();
-		for(OWLClassExpression operand : operands ) {
-			double degree = calculateTruthDegree(operand, individu);
-			degreesArray.add(degree);
+	// Intersection: stops at the first operand of degree 0, named classes (a bitset lookup) first
+	private double minDegree(Set<OWLClassExpression> operands, OWLNamedIndividual individu) {
+		double min = 1;
+		for(OWLClassExpression operand : namedFirst(operands)) {
+			min = Math.min(min, degreeOf(operand, individu));
+			if(min == 0) break;
 		}
-		return degreesArray;
+		return min;
+	}
+	
+	// Union: stops at the first operand of degree 1
+	private double maxDegree(Set<OWLClassExpression> operands, OWLNamedIndividual individu) {
+		double max = 0;
+		for(OWLClassExpression operand : namedFirst(operands)) {
+			max = Math.max(max, degreeOf(operand, individu));
+			if(max == 1) break;
+		}
+		return max;
+	}
+	
+	private static ArrayList<OWLClassExpression> namedFirst(Set<OWLClassExpression> operands) {
+		ArrayList<OWLClassExpression> list = new ArrayList<OWLClassExpression>(operands.size());
+		for(OWLClassExpression operand : operands) {
+			if(!operand.isAnonymous()) list.add(operand);
+		}
+		for(OWLClassExpression operand : operands) {
+			if(operand.isAnonymous()) list.add(operand);
+		}
+		return list;
 	}
 	
  	private double moyenne(ArrayList<Double> array) {
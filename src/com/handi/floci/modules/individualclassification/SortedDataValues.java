@@ -0,0 +1,93 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+/*
+ * The numeric values of one data property, sorted, with the individual each value belongs to.
+ * Answers "which individuals have a value in [min, max]" by binary search.
+ */
+public class SortedDataValues {
+	private final OWLDataProperty dataProperty;
+	private final double[] values;
+	private final OWLNamedIndividual[] individuals;
+	private final Set<OWLNamedIndividual> owners;
+
+	SortedDataValues(OWLDataProperty dataProperty, Map<OWLNamedIndividual, double[]> individualValues) {
+		this.dataProperty = dataProperty;
+		this.owners = Collections.unmodifiableSet(new HashSet<OWLNamedIndividual>(individualValues.keySet()));
+
+		int size = 0;
+		for(double[] array : individualValues.values()) {
+			for(double value : array) {
+				if(!Double.isNaN(value)) size++;
+			}
+		}
+		final double[] unsortedValues = new double[size];
+		OWLNamedIndividual[] unsortedIndividuals = new OWLNamedIndividual[size];
+		Integer[] order = new Integer[size];
+		int i = 0;
+		for(Map.Entry<OWLNamedIndividual, double[]> entry : individualValues.entrySet()) {
+			for(double value : entry.getValue()) {
+				if(Double.isNaN(value)) continue; // a non numeric value has no degree in any fuzzy datatype
+				unsortedValues[i] = value;
+				unsortedIndividuals[i] = entry.getKey();
+				order[i] = i;
+				i++;
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(unsortedValues[i1], unsortedValues[i2]);
+			}
+		});
+
+		values = new double[size];
+		individuals = new OWLNamedIndividual[size];
+		for(i = 0; i < size; i++) {
+			values[i] = unsortedValues[order[i]];
+			individuals[i] = unsortedIndividuals[order[i]];
+		}
+	}
+
+	// Individuals having at least one value in [min, max]
+	public Set<OWLNamedIndividual> getIndividuals(double min, double max) {
+		Set<OWLNamedIndividual> result = new HashSet<OWLNamedIndividual>();
+		for(int i = lowerBound(min); i < values.length && values[i] <= max; i++) {
+			result.add(individuals[i]);
+		}
+		return result;
+	}
+
+	// Individuals having at least one value (numeric or not) for the property
+	public Set<OWLNamedIndividual> getOwners() {
+		return owners;
+	}
+
+	public OWLDataProperty getDataProperty() {
+		return dataProperty;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	// First index whose value is >= min
+	private int lowerBound(double min) {
+		int low = 0, high = values.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(values[middle] < min) low = middle + 1;
+			else high = middle;
+		}
+		return low;
+	}
+}
@@ -0,0 +1,119 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+import com.handi.floci.modules.conceptclassification.HierarchyGenerator;
+import com.handi.floci.modules.conceptclassification.Taxonomy;
+import com.handi.floci.modules.reasoning.SymbolTable;
+
+/*
+ * Classification of an individual by a top-down walk of the class hierarchy, from owl:Thing.
+ * When C is a subclass of D, the degree of an individual in C cannot exceed its degree in D:
+ * the subclasses of a class whose degree is below the threshold are never evaluated.
+ * The hierarchy walked is the taxonomy of the generator, computed once per classification (or restored).
+ */
+public class TopDownClassifier {
+	private final SimpleFuzzyReasoner fuzzyReasoner;
+	private final HierarchyGenerator generator;
+
+	public TopDownClassifier(SimpleFuzzyReasoner fuzzyReasoner, HierarchyGenerator generator) {
+		this.fuzzyReasoner = fuzzyReasoner;
+		this.generator = generator;
+	}
+
+	/*
+	 * Degrees >= threshold of the individual, for the classes reached through classes of degree >= threshold,
+	 * in the order of the walk (a class before its subclasses).
+	 */
+	public Map<OWLClass, Double> classify(OWLNamedIndividual individu, double threshold) {
+		Map<OWLClass, Double> degrees = new LinkedHashMap<OWLClass, Double>();
+		walk(individu, threshold, degrees, null);
+		return degrees;
+	}
+
+	/*
+	 * The k most specific classes of the individual by degree: classes of degree >= threshold
+	 * none of whose subclasses reaches the threshold, highest degrees first.
+	 */
+	public List<Map.Entry<OWLClass, Double>> getMostSpecificClasses(OWLNamedIndividual individu, int k, double threshold) {
+		Map<OWLClass, Double> degrees = new HashMap<OWLClass, Double>();
+		List<OWLClass> mostSpecific = new ArrayList<OWLClass>();
+		walk(individu, threshold, degrees, mostSpecific);
+
+		final Comparator<Map.Entry<OWLClass, Double>> byDegree = new Comparator<Map.Entry<OWLClass, Double>>() {
+			@Override
+			public int compare(Map.Entry<OWLClass, Double> e1, Map.Entry<OWLClass, Double> e2) {
+				int comparison = Double.compare(e1.getValue(), e2.getValue());
+				return comparison != 0 ? comparison : e2.getKey().getIRI().compareTo(e1.getKey().getIRI());
+			}
+		};
+		// Keeps the k best entries, the worst of them on top
+		PriorityQueue<Map.Entry<OWLClass, Double>> best = new PriorityQueue<Map.Entry<OWLClass, Double>>(
+				Math.max(1, k), byDegree);
+		for(OWLClass clazz : mostSpecific) {
+			Map.Entry<OWLClass, Double> entry = new AbstractMap.SimpleImmutableEntry<OWLClass, Double>(clazz, degrees.get(clazz));
+			if(best.size() < k) {
+				best.add(entry);
+			} else if(k > 0 && byDegree.compare(entry, best.peek()) > 0) {
+				best.poll();
+				best.add(entry);
+			}
+		}
+
+		List<Map.Entry<OWLClass, Double>> result = new ArrayList<Map.Entry<OWLClass, Double>>(best);
+		Collections.sort(result, Collections.reverseOrder(byDegree));
+		return result;
+	}
+
+	// Breadth first walk; mostSpecific (if not null) receives the classes none of whose subclasses is kept
+	private void walk(OWLNamedIndividual individu, double threshold, Map<OWLClass, Double> degrees,
+			List<OWLClass> mostSpecific) {
+		Taxonomy taxonomy = generator.getTaxonomy();
+		EvaluationDag.Evaluation evaluation = fuzzyReasoner.evaluate(individu);
+		SymbolTable symbols = fuzzyReasoner.getSymbolTable();
+
+		OWLClass thing = taxonomy.getTop();
+		Set<OWLClass> visited = new HashSet<OWLClass>();
+		Queue<OWLClass> queue = new ArrayDeque<OWLClass>();
+		visited.add(thing);
+		queue.add(thing);
+		while(!queue.isEmpty()) {
+			OWLClass clazz = queue.poll();
+			double degree = degreeOf(clazz, individu, evaluation, symbols);
+			if(degree < threshold) continue; // prunes the whole subtree
+			degrees.put(clazz, degree);
+
+			boolean specific = true;
+			for(OWLClass child : taxonomy.getChildren(clazz)) {
+				if(visited.add(child)) queue.add(child);
+				// A child reached through another parent may already be known
+				Double childDegree = degrees.get(child);
+				if(childDegree != null || degreeOf(child, individu, evaluation, symbols) >= threshold) specific = false;
+			}
+			if(specific && mostSpecific != null && !clazz.isOWLThing()) mostSpecific.add(clazz);
+		}
+	}
+
+	private double degreeOf(OWLClass clazz, OWLNamedIndividual individu, EvaluationDag.Evaluation evaluation,
+			SymbolTable symbols) {
+		if(clazz.isOWLThing()) return 1;
+		int ordinal = symbols.getClassOrdinal(clazz);
+		// The DAG has every class of the imports closure, i.e. of the taxonomy; the reasoner is only a safety net
+		return ordinal >= 0 ? evaluation.getClassDegree(ordinal) : fuzzyReasoner.calculateClassDegree(clazz, individu);
+	}
+}
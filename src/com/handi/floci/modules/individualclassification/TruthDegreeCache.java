@@ -0,0 +1,165 @@
+package com.handi.floci.modules.individualclassification;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+import com.handi.floci.modules.reasoning.SchemaIndividuals;
+
+/*
+ * Bounded cache of the truth degrees computed by the SimpleFuzzyReasoner, keyed by (class expression, individual).
+ * The cache listens to the ontology manager and drops only the entries an ontology change can affect.
+ * Synchronized: the access ordered map changes on get, and the changes arrive from the thread that edits.
+ */
+public class TruthDegreeCache implements OWLOntologyChangeListener {
+	public static final int DEFAULT_CAPACITY = 100000;
+
+	private final OWLOntology ontology;
+	private final SchemaIndividuals schemaIndividuals;
+	private final LinkedHashMap<Key, Double> degrees;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	public TruthDegreeCache(OWLOntology ontology) {
+		this(ontology, DEFAULT_CAPACITY);
+	}
+
+	public TruthDegreeCache(OWLOntology ontology, final int capacity) {
+		this.ontology = ontology;
+		this.schemaIndividuals = new SchemaIndividuals(ontology);
+		// access ordered map = LRU eviction once the capacity is reached
+		this.degrees = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public synchronized Double get(OWLClassExpression clazz, OWLNamedIndividual individu) {
+		Double degree = degrees.get(new Key(clazz, individu));
+		if(degree == null) misses++;
+		else hits++;
+		return degree;
+	}
+
+	public synchronized void put(OWLClassExpression clazz, OWLNamedIndividual individu, double degree) {
+		degrees.put(new Key(clazz, individu), degree);
+	}
+
+	public synchronized void invalidateIndividual(OWLNamedIndividual individu) {
+		Iterator<Key> keys = degrees.keySet().iterator();
+		while(keys.hasNext()) {
+			if(keys.next().individu.equals(individu)) keys.remove();
+		}
+	}
+
+	public synchronized void invalidateEntity(OWLEntity entity) {
+		Iterator<Key> keys = degrees.keySet().iterator();
+		while(keys.hasNext()) {
+			if(keys.next().clazz.getSignature().contains(entity)) keys.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		degrees.clear();
+	}
+
+	public synchronized int size() {
+		return degrees.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	@Override
+	public synchronized void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		Set<OWLOntology> closure = ontology.getImportsClosure();
+		for(OWLOntologyChange change : changes) {
+			if(!closure.contains(change.getOntology())) continue;
+			schemaIndividuals.changed(change);
+			if(!(change instanceof OWLAxiomChange)) { // imports or ontology annotations changed
+				clear();
+				return;
+			}
+			OWLAxiom axiom = ((OWLAxiomChange) change).getAxiom();
+
+			if(axiom.isOfType(AxiomType.DECLARATION)) continue;
+
+			if(axiom.isOfType(AxiomType.ANNOTATION_ASSERTION)) { // e.g. the fuzzyLabel of a datatype
+				OWLAnnotationSubject subject = ((OWLAnnotationAssertionAxiom) axiom).getSubject();
+				if(subject instanceof IRI) {
+					for(OWLEntity entity : ontology.getEntitiesInSignature((IRI) subject, true)) {
+						invalidateEntity(entity);
+					}
+				}
+				continue;
+			}
+
+			// About an individual of the schema: the crisp types of any individual can change, e.g. with A = {a}
+			if(axiom.isOfType(AxiomType.ABoxAxiomTypes) && !schemaIndividuals.isMentionedBy(axiom)) {
+				for(OWLNamedIndividual individu : axiom.getIndividualsInSignature()) {
+					invalidateIndividual(individu);
+				}
+				// degrees of expressions going through object properties also depend on the neighbours
+				Iterator<Key> keys = degrees.keySet().iterator();
+				while(keys.hasNext()) {
+					if(!keys.next().clazz.getObjectPropertiesInSignature().isEmpty()) keys.remove();
+				}
+				continue;
+			}
+
+			// A TBox or RBox change can change any crisp entailment
+			clear();
+			return;
+		}
+	}
+
+	private static final class Key {
+		private final OWLClassExpression clazz;
+		private final OWLNamedIndividual individu;
+		private final int hash;
+
+		Key(OWLClassExpression clazz, OWLNamedIndividual individu) {
+			this.clazz = clazz;
+			this.individu = individu;
+			this.hash = 31 * clazz.hashCode() + individu.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return clazz.equals(other.clazz) && individu.equals(other.individu);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.handi.floci.modules.persistence;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.RemoveAxiom;
+import org.semanticweb.owlapi.model.RemoveImport;
+import org.semanticweb.owlapi.model.RemoveOntologyAnnotation;
+import org.semanticweb.owlapi.model.SetOntologyID;
+
+/*
+ * Writes an ontology to its document on a background thread. The saver owns a copy of the ontology,
+ * made once when it is created; the changes applied to the live ontology are recorded (they are
+ * immutable) and replayed onto the copy by the saving thread, so a save costs the edits made since
+ * the previous one, not a copy of the ontology. Nothing is parsed again and the reasoner keeps working
+ * on the live ontology. Saves are done in order; a save asked while another one is queued joins it.
+ */
+public class BackgroundOntologySaver implements OWLOntologyChangeListener {
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "floci-ontology-saver");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final OWLOntologyManager manager;
+	private final OWLOntology ontology;
+	// Only read and written by the saving thread, once created
+	private final OWLOntologyManager copyManager;
+	private final OWLOntology copy;
+	// Changes of the live ontology not saved yet, translated for the copy
+	private List<OWLOntologyChange> recorded = new ArrayList<OWLOntologyChange>();
+	private List<OWLOntologyChange> queued;
+	private OWLOntologyFormat queuedFormat;
+	private IRI queuedDocumentIRI;
+	private Future<?> last;
+
+	// Copies the ontology: to be created while nothing else edits it, e.g. right after the load
+	public BackgroundOntologySaver(OWLOntologyManager manager, OWLOntology ontology) throws OWLOntologyCreationException {
+		this.manager = manager;
+		this.ontology = ontology;
+		this.copyManager = OWLManager.createOWLOntologyManager();
+		this.copy = copyManager.createOntology(ontology.getOntologyID());
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		for(OWLImportsDeclaration declaration : ontology.getImportsDeclarations()) {
+			changes.add(new AddImport(copy, declaration));
+		}
+		for(OWLAnnotation annotation : ontology.getAnnotations()) {
+			changes.add(new AddOntologyAnnotation(copy, annotation));
+		}
+		copyManager.applyChanges(changes);
+		copyManager.addAxioms(copy, ontology.getAxioms());
+		manager.addOntologyChangeListener(this);
+	}
+
+	// Writes the ontology as it is now; the edits made afterwards wait for the next save
+	public synchronized void save() {
+		boolean scheduled = queued != null;
+		if(scheduled) {
+			queued.addAll(recorded);
+		} else {
+			queued = recorded;
+		}
+		recorded = new ArrayList<OWLOntologyChange>();
+		queuedFormat = manager.getOntologyFormat(ontology);
+		queuedDocumentIRI = manager.getOntologyDocumentIRI(ontology);
+		if(!scheduled) {
+			last = executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					write();
+				}
+			});
+		}
+	}
+
+	// Blocks until what has been asked so far is on disk, e.g. before another reader opens the file
+	public void awaitSaved() {
+		Future<?> future;
+		synchronized(this) {
+			future = last;
+		}
+		if(future == null) return;
+		try {
+			future.get();
+		} catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Stops recording the changes; the saves already asked for are still written
+	public void shutdown() {
+		manager.removeOntologyChangeListener(this);
+		executor.shutdown();
+	}
+
+	@Override
+	public synchronized void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		for(OWLOntologyChange change : changes) {
+			if(!change.getOntology().equals(ontology)) continue;
+			OWLOntologyChange replayed = onCopy(change);
+			if(replayed != null) recorded.add(replayed);
+		}
+	}
+
+	// The same change, made to the copy
+	private OWLOntologyChange onCopy(OWLOntologyChange change) {
+		if(change instanceof AddAxiom) return new AddAxiom(copy, change.getAxiom());
+		if(change instanceof RemoveAxiom) return new RemoveAxiom(copy, change.getAxiom());
+		if(change instanceof AddImport) return new AddImport(copy, ((AddImport) change).getImportDeclaration());
+		if(change instanceof RemoveImport) return new RemoveImport(copy, ((RemoveImport) change).getImportDeclaration());
+		if(change instanceof AddOntologyAnnotation) return new AddOntologyAnnotation(copy, ((AddOntologyAnnotation) change).getAnnotation());
+		if(change instanceof RemoveOntologyAnnotation) return new RemoveOntologyAnnotation(copy, ((RemoveOntologyAnnotation) change).getAnnotation());
+		if(change instanceof SetOntologyID) return new SetOntologyID(copy, ((SetOntologyID) change).getNewOntologyID());
+		return null;
+	}
+
+	private void write() {
+		List<OWLOntologyChange> changes;
+		OWLOntologyFormat format;
+		IRI documentIRI;
+		synchronized(this) {
+			changes = queued;
+			format = queuedFormat;
+			documentIRI = queuedDocumentIRI;
+			queued = null;
+		}
+		try {
+			if(!changes.isEmpty()) copyManager.applyChanges(changes);
+			if(!"file".equalsIgnoreCase(documentIRI.getScheme())) {
+				copyManager.saveOntology(copy, format, documentIRI);
+				return;
+			}
+			// Rendered next to the document, then moved in place: the document is never seen half written
+			Path document = new File(documentIRI.toURI()).toPath();
+			Path temporary = Files.createTempFile(document.toAbsolutePath().getParent(), document.getFileName().toString(), ".tmp");
+			try {
+				try(OutputStream out = Files.newOutputStream(temporary)) {
+					copyManager.saveOntology(copy, format, out);
+				}
+				Files.move(temporary, document, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+		} catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
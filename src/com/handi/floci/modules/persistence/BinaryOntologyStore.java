@@ -0,0 +1,395 @@
+package com.handi.floci.modules.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.OWLFunctionalSyntaxOntologyFormat;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.EntityType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+import org.semanticweb.owlapi.vocab.OWL2Datatype;
+import org.semanticweb.owlapi.vocab.PrefixOWLOntologyFormat;
+
+/*
+ * Compact binary copy of an ontology and its imports closure, to open it again without parsing RDF/XML.
+ * Every IRI of the file is written once, in a table (namespace and fragment), and referred to by its index.
+ * The bulk of an ABox (declarations and plain class, object and data property assertions) is written
+ * as fixed records of indexes; the rest (the schema, annotated assertions) in functional syntax.
+ * The header lists the source documents with their length and modification time: a copy whose sources
+ * changed since is stale. The file is read through a memory mapping.
+ */
+public class BinaryOntologyStore {
+	private static final int MAGIC = 0x464C4342; // "FLCB"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte DECLARATION = 0;
+	private static final byte CLASS_ASSERTION = 1;
+	private static final byte OBJECT_PROPERTY_ASSERTION = 2;
+	private static final byte DATA_PROPERTY_ASSERTION = 3;
+
+	private static final List<EntityType<?>> ENTITY_TYPES = EntityType.values();
+
+	/*
+	 * Writing
+	 */
+
+	// Written aside, then moved in place, so that a reader never sees a partial copy
+	public static void write(OWLOntologyManager manager, OWLOntology root, Path file)
+			throws IOException, OWLOntologyStorageException, OWLOntologyCreationException {
+		List<OWLOntology> sections = importsFirst(manager, root);
+
+		// Split every section, interning the IRIs of the records
+		Map<String, Integer> namespaces = new LinkedHashMap<String, Integer>();
+		Map<IRI, Integer> iris = new LinkedHashMap<IRI, Integer>();
+		List<byte[]> schemas = new ArrayList<byte[]>();
+		List<List<OWLAxiom>> records = new ArrayList<List<OWLAxiom>>();
+		for(OWLOntology section : sections) {
+			List<OWLAxiom> sectionRecords = new ArrayList<OWLAxiom>();
+			Set<OWLAxiom> schema = new HashSet<OWLAxiom>();
+			for(OWLAxiom axiom : section.getAxioms()) {
+				if(isRecord(axiom)) {
+					sectionRecords.add(axiom);
+					for(IRI iri : getRecordIRIs(axiom)) intern(iri, iris, namespaces);
+				} else {
+					schema.add(axiom);
+				}
+			}
+			IRI documentIRI = manager.getOntologyDocumentIRI(section);
+			if(documentIRI != null) intern(documentIRI, iris, namespaces);
+			schemas.add(toFunctionalSyntax(section, schema));
+			records.add(sectionRecords);
+		}
+
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(sections.size());
+			for(OWLOntology section : sections) {
+				IRI documentIRI = manager.getOntologyDocumentIRI(section);
+				File source = toFile(documentIRI);
+				writeString(out, documentIRI == null ? "" : documentIRI.toString());
+				out.writeLong(source != null ? source.length() : -1);
+				out.writeLong(source != null ? source.lastModified() : -1);
+			}
+
+			out.writeInt(namespaces.size());
+			for(String namespace : namespaces.keySet()) {
+				writeString(out, namespace);
+			}
+			out.writeInt(iris.size());
+			for(IRI iri : iris.keySet()) {
+				out.writeInt(namespaces.get(iri.getNamespace()));
+				writeString(out, iri.getFragment() == null ? "" : iri.getFragment());
+			}
+
+			for(int i = 0; i < sections.size(); i++) {
+				OWLOntology section = sections.get(i);
+				OWLOntologyFormat format = manager.getOntologyFormat(section);
+				writeString(out, format == null ? "" : format.getClass().getName());
+				Map<String, String> prefixes = format instanceof PrefixOWLOntologyFormat
+						? ((PrefixOWLOntologyFormat) format).getPrefixName2PrefixMap() : new LinkedHashMap<String, String>();
+				out.writeInt(prefixes.size());
+				for(Map.Entry<String, String> prefix : prefixes.entrySet()) {
+					writeString(out, prefix.getKey());
+					writeString(out, prefix.getValue());
+				}
+				IRI documentIRI = manager.getOntologyDocumentIRI(section);
+				out.writeInt(documentIRI == null ? -1 : iris.get(documentIRI));
+
+				out.writeInt(schemas.get(i).length);
+				out.write(schemas.get(i));
+
+				List<OWLAxiom> sectionRecords = records.get(i);
+				out.writeInt(sectionRecords.size());
+				for(OWLAxiom axiom : sectionRecords) {
+					writeRecord(out, axiom, iris);
+				}
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Depth first, an ontology after the ones it imports: each section can be parsed with its imports loaded
+	private static List<OWLOntology> importsFirst(OWLOntologyManager manager, OWLOntology root) {
+		List<OWLOntology> order = new ArrayList<OWLOntology>();
+		visit(manager, root, new HashSet<OWLOntology>(), order);
+		return order;
+	}
+
+	private static void visit(OWLOntologyManager manager, OWLOntology ontology, Set<OWLOntology> visited,
+			List<OWLOntology> order) {
+		if(!visited.add(ontology)) return;
+		for(OWLOntology imported : manager.getDirectImports(ontology)) {
+			visit(manager, imported, visited, order);
+		}
+		order.add(ontology);
+	}
+
+	// Plain assertions between named entities, without annotations (fuzzy degrees are annotations)
+	private static boolean isRecord(OWLAxiom axiom) {
+		if(axiom.isAnnotated()) return false;
+		if(axiom instanceof OWLDeclarationAxiom) return true;
+		if(axiom instanceof OWLClassAssertionAxiom) {
+			OWLClassAssertionAxiom assertion = (OWLClassAssertionAxiom) axiom;
+			return !assertion.getClassExpression().isAnonymous() && assertion.getIndividual().isNamed();
+		}
+		if(axiom instanceof OWLObjectPropertyAssertionAxiom) {
+			OWLObjectPropertyAssertionAxiom assertion = (OWLObjectPropertyAssertionAxiom) axiom;
+			return !assertion.getProperty().isAnonymous() && assertion.getSubject().isNamed() && assertion.getObject().isNamed();
+		}
+		if(axiom instanceof OWLDataPropertyAssertionAxiom) {
+			OWLDataPropertyAssertionAxiom assertion = (OWLDataPropertyAssertionAxiom) axiom;
+			return !assertion.getProperty().isAnonymous() && assertion.getSubject().isNamed();
+		}
+		return false;
+	}
+
+	private static List<IRI> getRecordIRIs(OWLAxiom axiom) {
+		List<IRI> recordIRIs = new ArrayList<IRI>(3);
+		if(axiom instanceof OWLDeclarationAxiom) {
+			recordIRIs.add(((OWLDeclarationAxiom) axiom).getEntity().getIRI());
+		} else if(axiom instanceof OWLClassAssertionAxiom) {
+			OWLClassAssertionAxiom assertion = (OWLClassAssertionAxiom) axiom;
+			recordIRIs.add(assertion.getClassExpression().asOWLClass().getIRI());
+			recordIRIs.add(assertion.getIndividual().asOWLNamedIndividual().getIRI());
+		} else if(axiom instanceof OWLObjectPropertyAssertionAxiom) {
+			OWLObjectPropertyAssertionAxiom assertion = (OWLObjectPropertyAssertionAxiom) axiom;
+			recordIRIs.add(assertion.getProperty().asOWLObjectProperty().getIRI());
+			recordIRIs.add(assertion.getSubject().asOWLNamedIndividual().getIRI());
+			recordIRIs.add(assertion.getObject().asOWLNamedIndividual().getIRI());
+		} else {
+			OWLDataPropertyAssertionAxiom assertion = (OWLDataPropertyAssertionAxiom) axiom;
+			recordIRIs.add(assertion.getProperty().asOWLDataProperty().getIRI());
+			recordIRIs.add(assertion.getSubject().asOWLNamedIndividual().getIRI());
+			recordIRIs.add(assertion.getObject().getDatatype().getIRI());
+		}
+		return recordIRIs;
+	}
+
+	private static void writeRecord(DataOutputStream out, OWLAxiom axiom, Map<IRI, Integer> iris) throws IOException {
+		List<IRI> recordIRIs = getRecordIRIs(axiom);
+		if(axiom instanceof OWLDeclarationAxiom) {
+			out.writeByte(DECLARATION);
+			out.writeByte(ENTITY_TYPES.indexOf(((OWLDeclarationAxiom) axiom).getEntity().getEntityType()));
+		} else if(axiom instanceof OWLClassAssertionAxiom) {
+			out.writeByte(CLASS_ASSERTION);
+		} else if(axiom instanceof OWLObjectPropertyAssertionAxiom) {
+			out.writeByte(OBJECT_PROPERTY_ASSERTION);
+		} else {
+			out.writeByte(DATA_PROPERTY_ASSERTION);
+		}
+		for(IRI iri : recordIRIs) {
+			out.writeInt(iris.get(iri));
+		}
+		if(axiom instanceof OWLDataPropertyAssertionAxiom) {
+			OWLLiteral literal = ((OWLDataPropertyAssertionAxiom) axiom).getObject();
+			writeString(out, literal.getLiteral());
+			writeString(out, literal.getLang());
+		}
+	}
+
+	private static void intern(IRI iri, Map<IRI, Integer> iris, Map<String, Integer> namespaces) {
+		if(iris.containsKey(iri)) return;
+		iris.put(iri, iris.size());
+		if(!namespaces.containsKey(iri.getNamespace())) namespaces.put(iri.getNamespace(), namespaces.size());
+	}
+
+	// The section without its records, with its imports and annotations, through a manager of its own
+	private static byte[] toFunctionalSyntax(OWLOntology section, Set<OWLAxiom> schema)
+			throws OWLOntologyCreationException, OWLOntologyStorageException {
+		OWLOntologyManager schemaManager = OWLManager.createOWLOntologyManager();
+		OWLOntology copy = schemaManager.createOntology(schema, section.getOntologyID().getOntologyIRI());
+		for(OWLImportsDeclaration declaration : section.getImportsDeclarations()) {
+			schemaManager.applyChange(new AddImport(copy, declaration));
+		}
+		for(OWLAnnotation annotation : section.getAnnotations()) {
+			schemaManager.applyChange(new AddOntologyAnnotation(copy, annotation));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		schemaManager.saveOntology(copy, new OWLFunctionalSyntaxOntologyFormat(), new StreamDocumentTarget(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/*
+	 * Reading
+	 */
+
+	// True if the copy exists and none of its sources changed since it was written
+	public static boolean isCurrent(Path file) {
+		if(!Files.isRegularFile(file)) return false;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = map(channel);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return false;
+			int sectionCount = buffer.getInt();
+			for(int i = 0; i < sectionCount; i++) {
+				File source = toFile(IRI.create(readString(buffer)));
+				long length = buffer.getLong();
+				long lastModified = buffer.getLong();
+				// A document that is not a local file (e.g. an import from the web) is not checked
+				if(source != null && (source.length() != length || source.lastModified() != lastModified)) return false;
+			}
+			return true;
+		} catch(IOException | RuntimeException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	// Loads the closure into the manager, imports first, and returns the root ontology
+	public static OWLOntology read(OWLOntologyManager manager, Path file) throws IOException, OWLOntologyCreationException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = map(channel);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) throw new IOException("Not a FLOCI binary ontology: " + file);
+			int sectionCount = buffer.getInt();
+			for(int i = 0; i < sectionCount; i++) {
+				readString(buffer);
+				buffer.getLong();
+				buffer.getLong();
+			}
+
+			String[] namespaces = new String[buffer.getInt()];
+			for(int i = 0; i < namespaces.length; i++) {
+				namespaces[i] = readString(buffer);
+			}
+			IRI[] iris = new IRI[buffer.getInt()];
+			for(int i = 0; i < iris.length; i++) {
+				String namespace = namespaces[buffer.getInt()];
+				String fragment = readString(buffer);
+				iris[i] = fragment.isEmpty() ? IRI.create(namespace) : IRI.create(namespace, fragment);
+			}
+
+			OWLDataFactory factory = manager.getOWLDataFactory();
+			OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration()
+					.setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+			OWLOntology ontology = null;
+			for(int i = 0; i < sectionCount; i++) {
+				OWLOntologyFormat format = newFormat(readString(buffer));
+				int prefixCount = buffer.getInt();
+				for(int j = 0; j < prefixCount; j++) {
+					String name = readString(buffer);
+					String prefix = readString(buffer);
+					if(format instanceof PrefixOWLOntologyFormat) ((PrefixOWLOntologyFormat) format).setPrefix(name, prefix);
+				}
+				int documentIRI = buffer.getInt();
+
+				// The imports of the section are already in the manager
+				byte[] schema = new byte[buffer.getInt()];
+				buffer.get(schema);
+				ontology = manager.loadOntologyFromOntologyDocument(
+						new StringDocumentSource(new String(schema, StandardCharsets.UTF_8)), configuration);
+
+				int recordCount = buffer.getInt();
+				Set<OWLAxiom> axioms = new HashSet<OWLAxiom>(recordCount * 4 / 3 + 1);
+				for(int j = 0; j < recordCount; j++) {
+					axioms.add(readRecord(buffer, iris, factory));
+				}
+				manager.addAxioms(ontology, axioms);
+
+				if(format != null) manager.setOntologyFormat(ontology, format);
+				if(documentIRI >= 0) manager.setOntologyDocumentIRI(ontology, iris[documentIRI]);
+			}
+			return ontology;
+		}
+	}
+
+	private static OWLAxiom readRecord(ByteBuffer buffer, IRI[] iris, OWLDataFactory factory) throws IOException {
+		byte kind = buffer.get();
+		switch(kind) {
+			case DECLARATION:
+				EntityType<?> type = ENTITY_TYPES.get(buffer.get());
+				OWLEntity entity = factory.getOWLEntity(type, iris[buffer.getInt()]);
+				return factory.getOWLDeclarationAxiom(entity);
+			case CLASS_ASSERTION:
+				return factory.getOWLClassAssertionAxiom(factory.getOWLClass(iris[buffer.getInt()]),
+						factory.getOWLNamedIndividual(iris[buffer.getInt()]));
+			case OBJECT_PROPERTY_ASSERTION:
+				return factory.getOWLObjectPropertyAssertionAxiom(factory.getOWLObjectProperty(iris[buffer.getInt()]),
+						factory.getOWLNamedIndividual(iris[buffer.getInt()]), factory.getOWLNamedIndividual(iris[buffer.getInt()]));
+			case DATA_PROPERTY_ASSERTION:
+				IRI property = iris[buffer.getInt()];
+				IRI subject = iris[buffer.getInt()];
+				IRI datatype = iris[buffer.getInt()];
+				String lexical = readString(buffer);
+				String lang = readString(buffer);
+				OWLLiteral literal = lang.isEmpty() && !OWL2Datatype.RDF_PLAIN_LITERAL.getIRI().equals(datatype)
+						? factory.getOWLLiteral(lexical, factory.getOWLDatatype(datatype)) : factory.getOWLLiteral(lexical, lang);
+				return factory.getOWLDataPropertyAssertionAxiom(factory.getOWLDataProperty(property),
+						factory.getOWLNamedIndividual(subject), literal);
+			default:
+				throw new IOException("Unknown record " + kind);
+		}
+	}
+
+	// The whole file, read only: the pages are read by the system as the buffer is walked
+	private static MappedByteBuffer map(FileChannel channel) throws IOException {
+		if(channel.size() > Integer.MAX_VALUE) throw new IOException("Binary ontology larger than 2 GB");
+		return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static OWLOntologyFormat newFormat(String className) {
+		if(className.isEmpty()) return null;
+		try {
+			return (OWLOntologyFormat) Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException | ClassCastException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static File toFile(IRI documentIRI) {
+		if(documentIRI == null || !"file".equals(documentIRI.getScheme())) return null;
+		return new File(documentIRI.toURI());
+	}
+}
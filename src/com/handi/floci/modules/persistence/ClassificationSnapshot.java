@@ -0,0 +1,186 @@
+package com.handi.floci.modules.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+
+import com.handi.floci.modules.conceptclassification.Taxonomy;
+
+/*
+ * The classification of an ontology, saved to <directory>/<hash>.snapshot, the hash being the one of
+ * OntologyHasher: its taxonomy (the satisfiable hierarchy and the unsatisfiable classes) and, once the reasoner
+ * realized them, the named types of all its individuals. An ontology opened again unchanged shows its hierarchy
+ * and classifies its individuals without waiting for the reasoner: with the types, it is only asked about the
+ * anonymous class expressions (entailment checks, no classification). The reasoner itself is not restored.
+ */
+public class ClassificationSnapshot {
+	private static final int MAGIC = 0x464C4353; // "FLCS"
+	private static final int FORMAT_VERSION = 3;
+
+	private final String hash;
+	private final Taxonomy taxonomy;
+	private final Map<OWLNamedIndividual, Set<OWLClass>> types;
+
+	// types: of every individual of the ontology, null if they are not realized yet
+	public ClassificationSnapshot(String hash, Taxonomy taxonomy, Map<OWLNamedIndividual, Set<OWLClass>> types) {
+		this.hash = hash;
+		this.taxonomy = taxonomy;
+		this.types = types;
+	}
+
+	// ~/.floci/snapshots, unless the floci.snapshot.dir system property says otherwise
+	public static Path getDefaultDirectory() {
+		String directory = System.getProperty("floci.snapshot.dir");
+		return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".floci", "snapshots");
+	}
+
+	// The snapshot of the ontology of this hash, null if there is none or if it cannot be read
+	public static ClassificationSnapshot load(Path directory, String hash, OWLDataFactory factory) {
+		Path file = directory.resolve(hash + ".snapshot");
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !hash.equals(in.readUTF())) return null;
+
+			OWLClass[] classTable = new OWLClass[in.readInt()];
+			for(int i = 0; i < classTable.length; i++) {
+				classTable[i] = factory.getOWLClass(IRI.create(in.readUTF()));
+			}
+
+			OWLClass top = classTable[in.readInt()];
+			List<OWLClass> classes = new ArrayList<OWLClass>();
+			Map<OWLClass, List<OWLClass>> children = new HashMap<OWLClass, List<OWLClass>>();
+			int classCount = in.readInt();
+			for(int i = 0; i < classCount; i++) {
+				OWLClass clazz = classTable[in.readInt()];
+				List<OWLClass> direct = new ArrayList<OWLClass>();
+				int childCount = in.readInt();
+				for(int j = 0; j < childCount; j++) {
+					direct.add(classTable[in.readInt()]);
+				}
+				classes.add(clazz);
+				children.put(clazz, direct);
+			}
+			Set<OWLClass> unsatisfiable = new HashSet<OWLClass>();
+			int unsatisfiableCount = in.readInt();
+			for(int i = 0; i < unsatisfiableCount; i++) {
+				unsatisfiable.add(classTable[in.readInt()]);
+			}
+
+			Map<OWLNamedIndividual, Set<OWLClass>> types = null;
+			int individualCount = in.readInt();
+			if(individualCount >= 0) {
+				types = new HashMap<OWLNamedIndividual, Set<OWLClass>>(individualCount * 4 / 3 + 1);
+				for(int i = 0; i < individualCount; i++) {
+					OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(in.readUTF()));
+					Set<OWLClass> individualTypes = new HashSet<OWLClass>();
+					int typeCount = in.readInt();
+					for(int j = 0; j < typeCount; j++) {
+						individualTypes.add(classTable[in.readInt()]);
+					}
+					types.put(individual, individualTypes);
+				}
+			}
+			return new ClassificationSnapshot(hash, Taxonomy.restore(top, classes, children, unsatisfiable), types);
+		} catch(NoSuchFileException e) {
+			return null;
+		} catch(IOException | RuntimeException e) {
+			// Truncated or corrupted: the ontology is classified again and the snapshot replaced
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// Written aside, then moved in place, so that a reader never sees a partial snapshot
+	public void save(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		Path file = directory.resolve(hash + ".snapshot");
+		Path temporary = Files.createTempFile(directory, hash, ".tmp");
+
+		Map<OWLClass, Integer> ids = new LinkedHashMap<OWLClass, Integer>();
+		idOf(taxonomy.getTop(), ids);
+		for(OWLClass clazz : taxonomy.getClasses()) idOf(clazz, ids);
+		for(OWLClass clazz : taxonomy.getUnsatisfiableClasses()) idOf(clazz, ids);
+		if(types != null) {
+			for(Set<OWLClass> individualTypes : types.values()) {
+				for(OWLClass type : individualTypes) idOf(type, ids);
+			}
+		}
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(hash);
+
+			out.writeInt(ids.size());
+			for(OWLClass clazz : ids.keySet()) {
+				out.writeUTF(clazz.getIRI().toString());
+			}
+
+			out.writeInt(ids.get(taxonomy.getTop()));
+			out.writeInt(taxonomy.size());
+			for(OWLClass clazz : taxonomy.getClasses()) {
+				List<OWLClass> direct = taxonomy.getChildren(clazz);
+				out.writeInt(ids.get(clazz));
+				out.writeInt(direct.size());
+				for(OWLClass child : direct) {
+					out.writeInt(ids.get(child));
+				}
+			}
+			out.writeInt(taxonomy.getUnsatisfiableClasses().size());
+			for(OWLClass clazz : taxonomy.getUnsatisfiableClasses()) {
+				out.writeInt(ids.get(clazz));
+			}
+
+			// -1: not realized
+			out.writeInt(types == null ? -1 : types.size());
+			if(types != null) {
+				for(Map.Entry<OWLNamedIndividual, Set<OWLClass>> entry : types.entrySet()) {
+					out.writeUTF(entry.getKey().getIRI().toString());
+					out.writeInt(entry.getValue().size());
+					for(OWLClass type : entry.getValue()) {
+						out.writeInt(ids.get(type));
+					}
+				}
+			}
+		} catch(IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void idOf(OWLClass clazz, Map<OWLClass, Integer> ids) {
+		if(!ids.containsKey(clazz)) ids.put(clazz, ids.size());
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public Taxonomy getTaxonomy() {
+		return taxonomy;
+	}
+
+	// null if the individuals were not realized when the snapshot was taken
+	public Map<OWLNamedIndividual, Set<OWLClass>> getTypes() {
+		return types;
+	}
+}
@@ -0,0 +1,233 @@
+package com.handi.floci.modules.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.handi.floci.modules.individualclassification.FuzzyOwl2toFuzzyDL;
+
+import fuzzydl.KnowledgeBase;
+import fuzzydl.parser.Parser;
+
+/*
+ * FuzzyDL knowledge bases already translated and solved, by ontology content and translator version.
+ * The last ones used stay in memory (switching back to an ontology); on disk, <directory>/<key>.kb is
+ * the solved KnowledgeBase serialized, or, if it cannot be serialized, <key>.fdl the fuzzyDL program,
+ * which spares the translation only: parsed by parseProgram, it is still to be solved. A program the
+ * translation did not produce is written in the background.
+ */
+public class FuzzyDLCache {
+	// To be changed with FuzzyOwl2toFuzzyDL or FuzzyOwl2toKnowledgeBase: the entries of another version are not read
+	public static final String TRANSLATOR_VERSION = "1";
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private final Path directory;
+	private final LinkedHashMap<String, KnowledgeBase> solved;
+	// Set once a KnowledgeBase failed to serialize: the class is not Serializable, no use trying every time
+	private boolean knowledgeBaseNotSerializable = false;
+	private final ExecutorService programWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "floci-fuzzydl-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public FuzzyDLCache() {
+		this(getDefaultDirectory(), DEFAULT_CAPACITY);
+	}
+
+	public FuzzyDLCache(Path directory, final int capacity) {
+		this.directory = directory;
+		// access ordered map = LRU eviction once the capacity is reached
+		this.solved = new LinkedHashMap<String, KnowledgeBase>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, KnowledgeBase> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// ~/.floci/fuzzydl, unless the floci.fuzzydl.dir system property says otherwise
+	public static Path getDefaultDirectory() {
+		String directory = System.getProperty("floci.fuzzydl.dir");
+		return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".floci", "fuzzydl");
+	}
+
+	// The axioms (OntologyHasher), the ontology annotations, where the fuzzy logic is, and the translator version
+	public static String key(OWLOntology ontology) {
+		return key(OntologyHasher.hash(ontology), ontology);
+	}
+
+	// Same, with the OntologyHasher hash of the ontology already known (e.g. HierarchyGenerator.getOntologyHash)
+	public static String key(String contentHash, OWLOntology ontology) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		digest.update(contentHash.getBytes(StandardCharsets.UTF_8));
+		List<String> annotations = new ArrayList<String>();
+		for(OWLOntology imported : ontology.getImportsClosure()) {
+			for(OWLAnnotation annotation : imported.getAnnotations()) {
+				annotations.add(annotation.toString());
+			}
+		}
+		Collections.sort(annotations);
+		for(String annotation : annotations) {
+			digest.update((byte) 0);
+			digest.update(annotation.getBytes(StandardCharsets.UTF_8));
+		}
+		digest.update((byte) 0);
+		digest.update(TRANSLATOR_VERSION.getBytes(StandardCharsets.UTF_8));
+
+		StringBuilder hex = new StringBuilder();
+		for(byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	// The solved knowledge base of this key, null if there is none or if it cannot be read
+	public synchronized KnowledgeBase get(String key) {
+		KnowledgeBase knowledgeBase = solved.get(key);
+		if(knowledgeBase == null) knowledgeBase = readKnowledgeBase(key);
+		if(knowledgeBase != null) solved.put(key, knowledgeBase);
+		return knowledgeBase;
+	}
+
+	// The knowledge base of the FuzzyDL program of this key, not solved; null if there is none or if it cannot be read
+	public synchronized KnowledgeBase parseProgram(String key) {
+		Path file = directory.resolve(key + ".fdl");
+		if(!Files.isRegularFile(file)) return null;
+		try {
+			KnowledgeBase knowledgeBase = Parser.getKB(file.toString());
+			Parser.reset();
+			return knowledgeBase;
+		} catch(Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/*
+	 * The knowledge base solved for the ontology document of this key. program is the FuzzyDL program it was
+	 * parsed from, null if it was translated in memory: the program is then translated again in the background,
+	 * from a copy of the document taken now.
+	 */
+	public synchronized void put(String key, KnowledgeBase knowledgeBase, Path program, String ontologyFilePath) {
+		solved.put(key, knowledgeBase);
+		try {
+			Files.createDirectories(directory);
+			if(Files.isRegularFile(directory.resolve(key + ".fdl"))) return;
+			if(!knowledgeBaseNotSerializable) {
+				if(writeKnowledgeBase(key, knowledgeBase)) return;
+				knowledgeBaseNotSerializable = true;
+			}
+			if(program != null) {
+				copyProgram(key, program);
+			} else {
+				writeProgram(key, ontologyFilePath);
+			}
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public synchronized void clear() {
+		solved.clear();
+	}
+
+	private KnowledgeBase readKnowledgeBase(String key) {
+		Path file = directory.resolve(key + ".kb");
+		try(ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			return (KnowledgeBase) in.readObject();
+		} catch(NoSuchFileException e) {
+			return null;
+		} catch(IOException | ClassNotFoundException | RuntimeException e) {
+			// Truncated, or written by another FuzzyDL: solved again and replaced
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// Written aside, then moved in place, so that a reader never sees a partial entry; false if not serializable
+	private boolean writeKnowledgeBase(String key, KnowledgeBase knowledgeBase) throws IOException {
+		Path temporary = Files.createTempFile(directory, key, ".tmp");
+		try(ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeObject(knowledgeBase);
+		} catch(NotSerializableException e) {
+			Files.deleteIfExists(temporary);
+			return false;
+		} catch(IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		Files.move(temporary, directory.resolve(key + ".kb"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return true;
+	}
+
+	private void copyProgram(String key, Path program) throws IOException {
+		Path temporary = Files.createTempFile(directory, key, ".tmp");
+		try {
+			Files.copy(program, temporary, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(temporary, directory.resolve(key + ".fdl"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	// The document may be saved again meanwhile: the translation reads the copy
+	private void writeProgram(final String key, String ontologyFilePath) throws IOException {
+		final Path document = Files.createTempFile(directory, key, ".owl");
+		Files.copy(Paths.get(ontologyFilePath), document, StandardCopyOption.REPLACE_EXISTING);
+		programWriter.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Path temporary = Files.createTempFile(directory, key, ".tmp");
+					try {
+						new FuzzyOwl2toFuzzyDL(document.toString(), temporary.toString()).translateOwl2Ontology();
+						Files.move(temporary, directory.resolve(key + ".fdl"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					} finally {
+						Files.deleteIfExists(temporary);
+					}
+				} catch(Exception e) {
+					e.printStackTrace();
+				} finally {
+					try {
+						Files.deleteIfExists(document);
+					} catch(IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+	}
+}
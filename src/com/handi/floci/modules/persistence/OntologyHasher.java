@@ -0,0 +1,72 @@
+package com.handi.floci.modules.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/*
+ * SHA-256 of the content of an ontology and its imports closure: the same axioms give the same hash,
+ * whatever the order in which they were parsed or the syntax of the documents.
+ * The axioms are streamed: each one is hashed on its own and the hashes are added (a sum does not depend
+ * on the order), so that nothing of the size of the ontology is built, then the sum of each ontology of
+ * the closure is hashed with its id.
+ */
+public class OntologyHasher {
+	private static final int DIGEST_LENGTH = 32;
+
+	private OntologyHasher() {
+	}
+
+	public static String hash(OWLOntology ontology) {
+		MessageDigest digest = newDigest();
+		List<String> documents = new ArrayList<String>();
+		for(OWLOntology imported : ontology.getImportsClosure()) {
+			byte[] sum = new byte[DIGEST_LENGTH];
+			for(OWLAxiom axiom : imported.getAxioms()) {
+				add(sum, digest.digest(axiom.toString().getBytes(StandardCharsets.UTF_8)));
+			}
+			digest.update(imported.getOntologyID().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(sum);
+			documents.add(toHex(digest.digest()));
+		}
+		Collections.sort(documents);
+		for(String document : documents) {
+			digest.update(document.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	// sum += hash, modulo 2^256
+	private static void add(byte[] sum, byte[] hash) {
+		int carry = 0;
+		for(int i = DIGEST_LENGTH - 1; i >= 0; i--) {
+			int total = (sum[i] & 0xFF) + (hash[i] & 0xFF) + carry;
+			sum[i] = (byte) total;
+			carry = total >> 8;
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,313 @@
+package com.handi.floci.modules.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.MissingImportHandlingStrategy;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+import org.semanticweb.owlapi.model.RemoveImport;
+import org.semanticweb.owlapi.model.UnloadableImportException;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+/*
+ * Opens an ontology document and its imports closure.
+ * The document is parsed straight into the target manager, without following its imports; the
+ * imported documents, if any, are then parsed in parallel, level by level, each by a manager (and a
+ * data factory) of its own, and copied into the target manager. An import that cannot be loaded fails
+ * the load, as it does with the OWL API. A binary copy of the closure (BinaryOntologyStore) is written
+ * in the background after a parse, and opened instead of the documents as long as none of them changed.
+ */
+public class OntologyLoader {
+	// The imports are parsed by the loader itself: the OWL API is sent to a document which does not exist, and skips it
+	private static final OWLOntologyIRIMapper UNRESOLVED_IMPORTS = new OWLOntologyIRIMapper() {
+		@Override
+		public IRI getDocumentIRI(IRI ontologyIRI) {
+			return IRI.create(new File(System.getProperty("java.io.tmpdir"), "floci-unresolved-import.owl"));
+		}
+	};
+
+	private final int threads;
+	private final Path binaryDirectory;
+	private final ExecutorService binaryWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "floci-binary-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private boolean loadedFromBinary;
+
+	public OntologyLoader() {
+		this(Runtime.getRuntime().availableProcessors(), getDefaultDirectory());
+	}
+
+	// No binary copy if binaryDirectory is null
+	public OntologyLoader(int threads, Path binaryDirectory) {
+		this.threads = threads;
+		this.binaryDirectory = binaryDirectory;
+	}
+
+	// ~/.floci/ontologies, unless the floci.binary.dir system property says otherwise
+	public static Path getDefaultDirectory() {
+		String directory = System.getProperty("floci.binary.dir");
+		return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".floci", "ontologies");
+	}
+
+	// Loads the document and its imports into the manager, and returns the ontology of the document
+	public OWLOntology load(OWLOntologyManager manager, File document) throws OWLOntologyCreationException {
+		Path binary = getBinaryFile(document);
+		if(binary != null && BinaryOntologyStore.isCurrent(binary)) {
+			try {
+				OWLOntology ontology = BinaryOntologyStore.read(manager, binary);
+				loadedFromBinary = true;
+				return ontology;
+			} catch(IOException | OWLOntologyCreationException | RuntimeException e) {
+				// Parsed again below, and the copy replaced
+				e.printStackTrace();
+				for(OWLOntology ontology : new ArrayList<OWLOntology>(manager.getOntologies())) {
+					manager.removeOntology(ontology);
+				}
+			}
+		}
+
+		OWLOntology ontology = parse(manager, document);
+		loadedFromBinary = false;
+		if(binary != null) writeBinary(manager, ontology, binary);
+		return ontology;
+	}
+
+	// Whether the last load read the binary copy instead of parsing the documents
+	public boolean isLoadedFromBinary() {
+		return loadedFromBinary;
+	}
+
+	// <directory>/<SHA-1 of the absolute path of the document>.flb
+	public Path getBinaryFile(File document) {
+		if(binaryDirectory == null) return null;
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(document.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder();
+			for(byte b : hash) {
+				name.append(String.format("%02x", b));
+			}
+			return binaryDirectory.resolve(name + ".flb");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Parsing
+	 */
+
+	// What the binary copy and the target manager need of an ontology, the axioms copied out of it
+	private static class Parsed {
+		final OWLOntologyID ontologyID;
+		final Set<OWLImportsDeclaration> importsDeclarations;
+		final Set<OWLAnnotation> annotations;
+		final Set<OWLAxiom> axioms;
+		final OWLOntologyFormat format;
+		final IRI documentIRI;
+
+		Parsed(OWLOntologyManager manager, OWLOntology ontology) {
+			this.ontologyID = ontology.getOntologyID();
+			this.importsDeclarations = new HashSet<OWLImportsDeclaration>(ontology.getImportsDeclarations());
+			this.annotations = new HashSet<OWLAnnotation>(ontology.getAnnotations());
+			this.axioms = new HashSet<OWLAxiom>(ontology.getAxioms());
+			this.format = manager.getOntologyFormat(ontology);
+			this.documentIRI = manager.getOntologyDocumentIRI(ontology);
+		}
+	}
+
+	// The document into the manager, then its imports closure, each level parsed in parallel
+	private OWLOntology parse(OWLOntologyManager manager, File document) throws OWLOntologyCreationException {
+		manager.addIRIMapper(UNRESOLVED_IMPORTS);
+		OWLOntology root;
+		try {
+			root = manager.loadOntologyFromOntologyDocument(new IRIDocumentSource(IRI.create(document.getAbsoluteFile())),
+					withoutImports());
+		} finally {
+			manager.removeIRIMapper(UNRESOLVED_IMPORTS);
+		}
+		if(root.getImportsDeclarations().isEmpty()) return root;
+
+		copyInto(manager, parseImports(manager, root));
+		// Declared while the imported ontologies did not exist: declared again to be resolved
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		for(OWLImportsDeclaration declaration : root.getImportsDeclarations()) {
+			changes.add(new RemoveImport(root, declaration));
+			changes.add(new AddImport(root, declaration));
+		}
+		manager.applyChanges(changes);
+		for(OWLOntology ontology : manager.getImportsClosure(root)) {
+			for(OWLImportsDeclaration declaration : ontology.getImportsDeclarations()) {
+				// Parsed, but the document at the IRI of the import declares another ontology IRI
+				if(manager.getImportedOntology(declaration) == null) {
+					throw new UnloadableImportException(new OWLOntologyCreationException(
+							declaration.getIRI() + " does not contain the imported ontology"), declaration);
+				}
+			}
+		}
+		return root;
+	}
+
+	// Every document imported by the root, directly or not
+	private List<Parsed> parseImports(OWLOntologyManager manager, OWLOntology root) throws OWLOntologyCreationException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "floci-ontology-parser");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Parsed> closure = new ArrayList<Parsed>();
+			Set<IRI> seen = new HashSet<IRI>();
+			seen.add(manager.getOntologyDocumentIRI(root));
+			if(root.getOntologyID().getOntologyIRI() != null) seen.add(root.getOntologyID().getOntologyIRI());
+			List<OWLImportsDeclaration> level = new ArrayList<OWLImportsDeclaration>();
+			for(OWLImportsDeclaration declaration : root.getImportsDeclarations()) {
+				if(seen.add(declaration.getIRI())) level.add(declaration);
+			}
+			while(!level.isEmpty()) {
+				List<Future<Parsed>> parsing = new ArrayList<Future<Parsed>>();
+				for(final OWLImportsDeclaration declaration : level) {
+					parsing.add(executor.submit(new Callable<Parsed>() {
+						@Override
+						public Parsed call() throws OWLOntologyCreationException {
+							// As the OWL API does without a mapper: the document of an import is at its IRI
+							return parseAlone(declaration.getIRI());
+						}
+					}));
+				}
+				List<OWLImportsDeclaration> next = new ArrayList<OWLImportsDeclaration>();
+				for(int i = 0; i < level.size(); i++) {
+					Parsed parsed;
+					try {
+						parsed = get(parsing.get(i));
+					} catch(OWLOntologyCreationException e) {
+						throw new UnloadableImportException(e, level.get(i));
+					}
+					closure.add(parsed);
+					for(OWLImportsDeclaration declaration : parsed.importsDeclarations) {
+						if(seen.add(declaration.getIRI())) next.add(declaration);
+					}
+				}
+				level = next;
+			}
+			return closure;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Parsed parseAlone(IRI documentIRI) throws OWLOntologyCreationException {
+		OWLOntologyManager parser = OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl());
+		parser.clearIRIMappers();
+		parser.addIRIMapper(UNRESOLVED_IMPORTS);
+		OWLOntology ontology = parser.loadOntologyFromOntologyDocument(new IRIDocumentSource(documentIRI), withoutImports());
+		return new Parsed(parser, ontology);
+	}
+
+	// The imports go to UNRESOLVED_IMPORTS, a document which does not exist
+	private static OWLOntologyLoaderConfiguration withoutImports() {
+		return new OWLOntologyLoaderConfiguration().setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+	}
+
+	private static Parsed get(Future<Parsed> future) throws OWLOntologyCreationException {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OWLOntologyCreationException(e);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof OWLOntologyCreationException) throw (OWLOntologyCreationException) e.getCause();
+			throw new OWLOntologyCreationException(e.getCause());
+		}
+	}
+
+	// The first one returned; the ontologies are all created before the import declarations are added, an
+	// import declaration added before its ontology exists stays unresolved
+	private static OWLOntology copyInto(OWLOntologyManager manager, List<Parsed> closure)
+			throws OWLOntologyCreationException {
+		List<OWLOntology> copies = new ArrayList<OWLOntology>();
+		for(Parsed parsed : closure) {
+			copies.add(manager.createOntology(parsed.ontologyID));
+		}
+		for(int i = 0; i < closure.size(); i++) {
+			Parsed parsed = closure.get(i);
+			OWLOntology copy = copies.get(i);
+			List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+			for(OWLImportsDeclaration declaration : parsed.importsDeclarations) {
+				changes.add(new AddImport(copy, declaration));
+			}
+			for(OWLAnnotation annotation : parsed.annotations) {
+				changes.add(new AddOntologyAnnotation(copy, annotation));
+			}
+			manager.applyChanges(changes);
+			manager.addAxioms(copy, parsed.axioms);
+			if(parsed.format != null) manager.setOntologyFormat(copy, parsed.format);
+			if(parsed.documentIRI != null) manager.setOntologyDocumentIRI(copy, parsed.documentIRI);
+		}
+		return copies.isEmpty() ? null : copies.get(0);
+	}
+
+	/*
+	 * Binary copy
+	 */
+
+	// The closure copied out on the calling thread (the live ontology is not thread safe), written aside
+	private void writeBinary(OWLOntologyManager manager, OWLOntology ontology, final Path binary) {
+		final List<Parsed> closure = new ArrayList<Parsed>();
+		closure.add(new Parsed(manager, ontology));
+		for(OWLOntology imported : manager.getImports(ontology)) {
+			closure.add(new Parsed(manager, imported));
+		}
+		binaryWriter.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					OWLOntologyManager copyManager = OWLManager.createOWLOntologyManager();
+					BinaryOntologyStore.write(copyManager, copyInto(copyManager, closure), binary);
+				} catch(IOException | OWLOntologyStorageException | OWLOntologyCreationException | RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,58 @@
+package com.handi.floci.modules.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.RemoveAxiom;
+
+/*
+ * The axiom changes made to the live ontology since the recording started, so that edits which are
+ * not saved can be undone in place, instead of reloading the document.
+ */
+public class PendingEdits implements OWLOntologyChangeListener {
+	private final OWLOntologyManager manager;
+	private final OWLOntology ontology;
+	private final List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+	private boolean recording = true;
+
+	public PendingEdits(OWLOntologyManager manager, OWLOntology ontology) {
+		this.manager = manager;
+		this.ontology = ontology;
+		this.manager.addOntologyChangeListener(this);
+	}
+
+	// The edits are kept (they have been saved): stops recording
+	public void commit() {
+		stop();
+	}
+
+	// Applies the inverse of the recorded changes, latest first, then stops recording
+	public void rollback() {
+		if(!recording) return;
+		stop();
+		List<OWLOntologyChange> inverse = new ArrayList<OWLOntologyChange>();
+		for(int i = changes.size() - 1; i >= 0; i--) {
+			OWLOntologyChange change = changes.get(i);
+			if(change.isAddAxiom()) inverse.add(new RemoveAxiom(ontology, change.getAxiom()));
+			else inverse.add(new AddAxiom(ontology, change.getAxiom()));
+		}
+		if(!inverse.isEmpty()) manager.applyChanges(inverse);
+	}
+
+	private void stop() {
+		recording = false;
+		manager.removeOntologyChangeListener(this);
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		for(OWLOntologyChange change : changes) {
+			if(change.getOntology().equals(ontology) && change.isAxiomChange()) this.changes.add(change);
+		}
+	}
+}
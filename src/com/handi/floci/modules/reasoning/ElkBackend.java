@@ -0,0 +1,54 @@
+package com.handi.floci.modules.reasoning;
+
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+
+/*
+ * ELK, a consequence-based reasoner for OWL 2 EL, which classifies EL ontologies far faster than a
+ * tableau reasoner. Loaded by reflection: the backend is only available when ELK is on the classpath.
+ */
+public class ElkBackend implements ReasonerBackend {
+	private static final String FACTORY_CLASS = "org.semanticweb.elk.owlapi.ElkReasonerFactory";
+	// Looked up once: the backends are asked for every ontology and every module
+	private static final boolean AVAILABLE = lookUp();
+
+	@Override
+	public String getName() {
+		return "ELK";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	// EL, without the EL constructors ELK does not (fully) support
+	@Override
+	public boolean isComplete(OntologyProfile profile) {
+		return profile.isEL()
+				&& !profile.uses(ClassExpressionType.OBJECT_HAS_SELF)
+				&& !profile.uses(ClassExpressionType.OBJECT_ONE_OF)
+				&& !profile.uses(ClassExpressionType.DATA_SOME_VALUES_FROM);
+	}
+
+	@Override
+	public OWLReasoner createReasoner(OWLOntology ontology) {
+		try {
+			OWLReasonerFactory factory = (OWLReasonerFactory) Class.forName(FACTORY_CLASS).getDeclaredConstructor().newInstance();
+			return factory.createReasoner(ontology);
+		} catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("ELK is not available", e);
+		}
+	}
+
+	private static boolean lookUp() {
+		try {
+			Class.forName(FACTORY_CLASS);
+			return true;
+		} catch(ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.handi.floci.modules.reasoning;
+
+import org.semanticweb.HermiT.Configuration;
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/*
+ * HermiT: complete for OWL 2 DL, the fallback for any ontology.
+ */
+public class HermiTBackend implements ReasonerBackend {
+	@Override
+	public String getName() {
+		return "HermiT";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public boolean isComplete(OntologyProfile profile) {
+		return true;
+	}
+
+	@Override
+	public OWLReasoner createReasoner(OWLOntology ontology) {
+		return create(ontology);
+	}
+
+	// Changes are buffered until the lifecycle flushes them: ABox edits are then applied incrementally
+	public static Reasoner create(OWLOntology ontology) {
+		Configuration configuration = new Configuration();
+		configuration.bufferChanges = true;
+		return new Reasoner(configuration, ontology);
+	}
+}
@@ -0,0 +1,174 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDatatypeDefinitionAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+import uk.ac.manchester.cs.owlapi.modularity.SyntacticLocalityModuleExtractor;
+
+/*
+ * Modules of the loaded ontology for per-individual reasoning.
+ * Syntactic locality alone keeps every assertion of a class in the signature, i.e. most of the ABox;
+ * the module is therefore taken over the schema and the assertions of the individuals connected to the
+ * given ones only. Assertions about unconnected individuals do not change their types as long as the
+ * ontology is consistent, so the cost follows the neighbourhood.
+ * The module is a bottom-locality one: it keeps everything that makes a class a type of an individual of
+ * the signature, so the classes only need not be in the signature, and a class outside the module is not a type.
+ * The fuzzy annotations (fuzzyLabel on the ontology and the datatypes) and the datatype definitions,
+ * which locality leaves out, are carried over for the entities of the module.
+ */
+public class ModuleExtractor implements OWLOntologyChangeListener {
+	private final OWLOntologyManager manager;
+	private final OWLOntology ontology;
+	// The logical axioms other than assertions, and the individuals they name (nominals): dropped after an edit
+	private Set<OWLAxiom> schema;
+	private Set<OWLNamedIndividual> schemaIndividuals;
+
+	public ModuleExtractor(OWLOntologyManager manager, OWLOntology ontology) {
+		this.manager = manager;
+		this.ontology = ontology;
+		manager.addOntologyChangeListener(this);
+	}
+
+	public synchronized Set<OWLAxiom> extract(Set<OWLEntity> signature) {
+		if(schema == null) indexSchema();
+		Set<OWLNamedIndividual> seeds = new HashSet<OWLNamedIndividual>(schemaIndividuals);
+		for(OWLEntity entity : signature) {
+			if(entity.isOWLNamedIndividual()) seeds.add(entity.asOWLNamedIndividual());
+		}
+		Set<OWLAxiom> candidates = new HashSet<OWLAxiom>(schema);
+		candidates.addAll(getConnectedAssertions(seeds));
+		SyntacticLocalityModuleExtractor extractor = new SyntacticLocalityModuleExtractor(manager, ontology,
+				candidates, ModuleType.BOT);
+		Set<OWLAxiom> module = new HashSet<OWLAxiom>(extractor.extract(signature));
+
+		Set<OWLEntity> moduleSignature = new HashSet<OWLEntity>(signature);
+		Deque<OWLEntity> pending = new ArrayDeque<OWLEntity>(signature);
+		for(OWLAxiom axiom : module) {
+			for(OWLEntity entity : axiom.getSignature()) {
+				if(moduleSignature.add(entity)) pending.add(entity);
+			}
+		}
+		OWLDataFactory factory = manager.getOWLDataFactory();
+		while(!pending.isEmpty()) {
+			OWLEntity entity = pending.poll();
+			if(entity.isBuiltIn()) continue;
+			module.add(factory.getOWLDeclarationAxiom(entity));
+			for(OWLOntology ont : ontology.getImportsClosure()) {
+				for(OWLAnnotationAssertionAxiom annotation : ont.getAnnotationAssertionAxioms(entity.getIRI())) {
+					module.add(annotation);
+				}
+				// Local as well, but the reasoners reject a datatype they cannot define
+				if(entity.isOWLDatatype()) {
+					for(OWLDatatypeDefinitionAxiom definition : ont.getDatatypeDefinitions(entity.asOWLDatatype())) {
+						module.add(definition);
+						for(OWLEntity used : definition.getSignature()) {
+							if(moduleSignature.add(used)) pending.add(used);
+						}
+					}
+				}
+			}
+		}
+		return module;
+	}
+
+	// The module as an ontology of its own manager, under the IRI of the loaded ontology (the fuzzy labels depend on it)
+	public OWLOntology extractAsOntology(Set<OWLEntity> signature) throws OWLOntologyCreationException {
+		Set<OWLAxiom> axioms = extract(signature);
+		OWLOntologyManager moduleManager = OWLManager.createOWLOntologyManager();
+		OWLOntology module = moduleManager.createOntology(axioms, ontology.getOntologyID().getOntologyIRI());
+		for(OWLAnnotation annotation : ontology.getAnnotations()) {
+			moduleManager.applyChange(new AddOntologyAnnotation(module, annotation));
+		}
+		return module;
+	}
+
+	public OWLOntology getOntology() {
+		return ontology;
+	}
+
+	// The individuals the assertions connect to this one, itself included: the individuals of its module
+	public synchronized Set<OWLNamedIndividual> getConnectedIndividuals(OWLNamedIndividual individu) {
+		Set<OWLNamedIndividual> reached = new HashSet<OWLNamedIndividual>();
+		reached.add(individu);
+		connect(reached, new HashSet<OWLAxiom>());
+		return reached;
+	}
+
+	private void indexSchema() {
+		schema = new HashSet<OWLAxiom>();
+		schemaIndividuals = new HashSet<OWLNamedIndividual>();
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLLogicalAxiom axiom : ont.getLogicalAxioms()) {
+				if(axiom.isOfType(AxiomType.ABoxAxiomTypes)) continue;
+				schema.add(axiom);
+				schemaIndividuals.addAll(axiom.getIndividualsInSignature());
+			}
+		}
+	}
+
+	// The assertions about the seeds and, transitively, about the individuals they are related to
+	private Set<OWLAxiom> getConnectedAssertions(Set<OWLNamedIndividual> seeds) {
+		Set<OWLAxiom> assertions = new HashSet<OWLAxiom>();
+		connect(new HashSet<OWLNamedIndividual>(seeds), assertions);
+		return assertions;
+	}
+
+	// Adds to reached the individuals connected to it, and to assertions the assertions connecting them
+	private void connect(Set<OWLNamedIndividual> reached, Set<OWLAxiom> assertions) {
+		Deque<OWLNamedIndividual> pending = new ArrayDeque<OWLNamedIndividual>(reached);
+		while(!pending.isEmpty()) {
+			OWLNamedIndividual individu = pending.poll();
+			for(OWLOntology ont : ontology.getImportsClosure()) {
+				for(OWLAxiom axiom : ont.getReferencingAxioms(individu)) {
+					if(!axiom.isLogicalAxiom() || !assertions.add(axiom)) continue;
+					for(OWLNamedIndividual related : axiom.getIndividualsInSignature()) {
+						if(reached.add(related)) pending.add(related);
+					}
+				}
+			}
+		}
+	}
+
+	public void dispose() {
+		manager.removeOntologyChangeListener(this);
+		synchronized(this) {
+			schema = null;
+			schemaIndividuals = null;
+		}
+	}
+
+	@Override
+	public synchronized void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		for(OWLOntologyChange change : changes) {
+			// Assertions are read on every extraction, only the schema is kept
+			if(!(change instanceof OWLAxiomChange)
+					|| !((OWLAxiomChange) change).getAxiom().isOfType(AxiomType.ABoxAxiomTypes)) {
+				schema = null;
+				schemaIndividuals = null;
+				return;
+			}
+		}
+	}
+}
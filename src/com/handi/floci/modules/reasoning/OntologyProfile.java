@@ -0,0 +1,91 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.profiles.OWL2DLProfile;
+import org.semanticweb.owlapi.profiles.OWL2ELProfile;
+import org.semanticweb.owlapi.profiles.OWL2QLProfile;
+import org.semanticweb.owlapi.profiles.OWL2RLProfile;
+import org.semanticweb.owlapi.profiles.OWLProfile;
+
+/*
+ * The OWL 2 profiles of an ontology and its imports closure, as checked by the OWL API profile checkers,
+ * along with the class constructors it uses.
+ */
+public class OntologyProfile {
+	private final boolean el;
+	private final boolean ql;
+	private final boolean rl;
+	private final boolean dl;
+	private final Set<ClassExpressionType> constructors;
+
+	private OntologyProfile(boolean el, boolean ql, boolean rl, boolean dl, Set<ClassExpressionType> constructors) {
+		this.el = el;
+		this.ql = ql;
+		this.rl = rl;
+		this.dl = dl;
+		this.constructors = Collections.unmodifiableSet(constructors);
+	}
+
+	public static OntologyProfile check(OWLOntology ontology) {
+		Set<ClassExpressionType> constructors = EnumSet.noneOf(ClassExpressionType.class);
+		for(OWLOntology imported : ontology.getImportsClosure()) {
+			for(OWLAxiom axiom : imported.getLogicalAxioms()) {
+				for(OWLClassExpression expression : axiom.getNestedClassExpressions()) {
+					constructors.add(expression.getClassExpressionType());
+				}
+			}
+		}
+		return new OntologyProfile(isIn(new OWL2ELProfile(), ontology), isIn(new OWL2QLProfile(), ontology),
+				isIn(new OWL2RLProfile(), ontology), isIn(new OWL2DLProfile(), ontology), constructors);
+	}
+
+	private static boolean isIn(OWLProfile profile, OWLOntology ontology) {
+		return profile.checkOntology(ontology).isInProfile();
+	}
+
+	public boolean isEL() {
+		return el;
+	}
+
+	public boolean isQL() {
+		return ql;
+	}
+
+	public boolean isRL() {
+		return rl;
+	}
+
+	public boolean isDL() {
+		return dl;
+	}
+
+	public boolean uses(ClassExpressionType constructor) {
+		return constructors.contains(constructor);
+	}
+
+	// e.g. "OWL 2 EL, OWL 2 DL", or "OWL 2 Full" when in none of the profiles
+	@Override
+	public String toString() {
+		List<String> names = new ArrayList<String>();
+		if(el) names.add("OWL 2 EL");
+		if(ql) names.add("OWL 2 QL");
+		if(rl) names.add("OWL 2 RL");
+		if(dl) names.add("OWL 2 DL");
+		if(names.isEmpty()) return "OWL 2 Full";
+		StringBuilder builder = new StringBuilder();
+		for(String name : names) {
+			if(builder.length() > 0) builder.append(", ");
+			builder.append(name);
+		}
+		return builder.toString();
+	}
+}
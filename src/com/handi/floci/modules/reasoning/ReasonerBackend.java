@@ -0,0 +1,20 @@
+package com.handi.floci.modules.reasoning;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/*
+ * A crisp reasoner implementation that can be chosen for an ontology.
+ * The reasoners created are buffering: the changes are flushed by a ReasonerLifecycle.
+ */
+public interface ReasonerBackend {
+	String getName();
+
+	// Whether the backend can be used here, e.g. its library is on the classpath
+	boolean isAvailable();
+
+	// Whether the backend computes the complete class hierarchy and types of an ontology of this profile
+	boolean isComplete(OntologyProfile profile);
+
+	OWLReasoner createReasoner(OWLOntology ontology);
+}
@@ -0,0 +1,112 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.List;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/*
+ * Keeps track of the state of a crisp reasoner: whether its class hierarchy has been computed
+ * and whether it is still up to date with the changes made to the ontology.
+ * The reasoner is classified once, and again only after a change that can alter the hierarchy:
+ * any logical change but an assertion, or an assertion about an individual the schema names.
+ */
+public class ReasonerLifecycle implements OWLOntologyChangeListener {
+	private final OWLReasoner reasoner;
+	private final OWLOntologyManager manager;
+	private final SchemaIndividuals schemaIndividuals;
+
+	private boolean classified = false;
+	private boolean pendingChanges = false;
+	private boolean hierarchyChanged = false;
+	private int hierarchyVersion = 0;
+
+	public ReasonerLifecycle(OWLReasoner reasoner, OWLOntologyManager manager) {
+		this.reasoner = reasoner;
+		this.manager = manager;
+		this.schemaIndividuals = new SchemaIndividuals(reasoner.getRootOntology());
+		this.manager.addOntologyChangeListener(this);
+	}
+
+	// Flushes the buffered changes, then classifies if the hierarchy is not (or no longer) known
+	public synchronized void ensureClassified() {
+		ensureUpToDate();
+		if(!classified) {
+			reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+			classified = true;
+			hierarchyVersion++;
+		}
+	}
+
+	/*
+	 * What the caller needs from the hierarchy is already known elsewhere (a saved taxonomy, types realized by
+	 * another reasoner): ensureClassified no longer classifies upfront. The reasoner itself is left as it is, and
+	 * classifies by itself if it is asked a query that needs the hierarchy.
+	 */
+	public synchronized void restoreClassification() {
+		ensureUpToDate();
+		if(!classified) {
+			classified = true;
+			hierarchyVersion++;
+		}
+	}
+
+	// Flushes the buffered changes without forcing a classification
+	public synchronized void ensureUpToDate() {
+		if(pendingChanges) {
+			reasoner.flush();
+			pendingChanges = false;
+			if(hierarchyChanged) {
+				classified = false;
+				hierarchyChanged = false;
+			}
+		}
+	}
+
+	public synchronized boolean isClassified() {
+		return classified && !hierarchyChanged;
+	}
+
+	public synchronized boolean isUpToDate() {
+		return !pendingChanges;
+	}
+
+	// Changes every time the hierarchy is computed again: what is derived from it must then be recomputed
+	public synchronized int getHierarchyVersion() {
+		return hierarchyVersion;
+	}
+
+	public OWLReasoner getReasoner() {
+		return this.reasoner;
+	}
+
+	public void dispose() {
+		manager.removeOntologyChangeListener(this);
+	}
+
+	@Override
+	public synchronized void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		for(OWLOntologyChange change : changes) {
+			if(!reasoner.getRootOntology().getImportsClosure().contains(change.getOntology())) continue;
+			schemaIndividuals.changed(change);
+
+			if(change instanceof OWLAxiomChange) {
+				OWLAxiom axiom = ((OWLAxiomChange) change).getAxiom();
+				// Annotations and declarations do not change any entailment
+				if(!axiom.isLogicalAxiom()) continue;
+				// ABox assertions are handled by the flush, the class hierarchy stays valid unless they are about a nominal
+				if(!axiom.isOfType(AxiomType.ABoxAxiomTypes) || schemaIndividuals.isMentionedBy(axiom))
+					hierarchyChanged = true;
+			} else {
+				hierarchyChanged = true;
+			}
+			pendingChanges = true;
+		}
+	}
+}
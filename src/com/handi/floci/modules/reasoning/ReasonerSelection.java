@@ -0,0 +1,83 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/*
+ * The crisp reasoner chosen for an ontology: the first available backend, in order of preference,
+ * that is complete for the profile of the ontology. HermiT, last, is complete for everything.
+ * The choice is kept with its reason (the profile) and the time the profile check took.
+ * The profile is only checked if a backend other than HermiT is available: otherwise there is no choice to make.
+ */
+public class ReasonerSelection {
+	// Fastest first
+	public static final List<ReasonerBackend> DEFAULT_BACKENDS = Arrays.<ReasonerBackend>asList(new ElkBackend(), new HermiTBackend());
+
+	private final ReasonerBackend backend;
+	private final OntologyProfile profile;
+	private final OWLReasoner reasoner;
+	private final long profileCheckMillis;
+
+	private ReasonerSelection(ReasonerBackend backend, OntologyProfile profile, OWLReasoner reasoner, long profileCheckMillis) {
+		this.backend = backend;
+		this.profile = profile;
+		this.reasoner = reasoner;
+		this.profileCheckMillis = profileCheckMillis;
+	}
+
+	public static ReasonerSelection select(OWLOntology ontology) {
+		return select(ontology, DEFAULT_BACKENDS);
+	}
+
+	public static ReasonerSelection select(OWLOntology ontology, List<ReasonerBackend> backends) {
+		HermiTBackend fallback = new HermiTBackend();
+		if(!hasAlternative(backends)) {
+			return new ReasonerSelection(fallback, null, fallback.createReasoner(ontology), 0);
+		}
+
+		long start = System.nanoTime();
+		OntologyProfile profile = OntologyProfile.check(ontology);
+		long profileCheckMillis = (System.nanoTime() - start) / 1000000;
+
+		for(ReasonerBackend backend : backends) {
+			if(backend.isAvailable() && backend.isComplete(profile)) {
+				return new ReasonerSelection(backend, profile, backend.createReasoner(ontology), profileCheckMillis);
+			}
+		}
+		return new ReasonerSelection(fallback, profile, fallback.createReasoner(ontology), profileCheckMillis);
+	}
+
+	// The checkers (OWL 2 DL in particular) walk the whole ontology: worth it only if HermiT is not the only choice
+	private static boolean hasAlternative(List<ReasonerBackend> backends) {
+		for(ReasonerBackend backend : backends) {
+			if(!(backend instanceof HermiTBackend) && backend.isAvailable()) return true;
+		}
+		return false;
+	}
+
+	public ReasonerBackend getBackend() {
+		return backend;
+	}
+
+	// null if the profile was not checked
+	public OntologyProfile getProfile() {
+		return profile;
+	}
+
+	public OWLReasoner getReasoner() {
+		return reasoner;
+	}
+
+	public long getProfileCheckMillis() {
+		return profileCheckMillis;
+	}
+
+	// e.g. "ELK (OWL 2 EL, OWL 2 DL)", or "HermiT" alone when the profile was not checked
+	@Override
+	public String toString() {
+		return profile == null ? backend.getName() : backend.getName() + " (" + profile + ")";
+	}
+}
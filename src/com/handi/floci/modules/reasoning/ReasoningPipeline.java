@@ -0,0 +1,118 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javafx.concurrent.Task;
+
+/*
+ * A sequence of named stages (load, classify, translate, solve...) run as one javafx Task, off the
+ * JavaFX Application Thread. Each stage receives the result of the previous one. The task message is
+ * the name of the running stage and its progress is the number of stages done, plus the fraction
+ * reported by the running stage.
+ * Cancelling the task stops it before the next stage; a stage that can be stopped sooner registers
+ * how with onCancel (e.g. interrupting the reasoner).
+ */
+public class ReasoningPipeline<T> {
+	public interface Stage<I, O> {
+		O run(I input, StageContext context) throws Exception;
+	}
+
+	public interface StageContext {
+		boolean isCancelled();
+
+		// Progress of the running stage only
+		void updateStageProgress(double done, double total);
+
+		// Shown after the name of the running stage, e.g. how it goes about it
+		void updateStageMessage(String detail);
+
+		// Run when the task is cancelled while this stage is running
+		void onCancel(Runnable action);
+	}
+
+	private final List<String> names;
+	private final List<Stage<Object, Object>> stages;
+
+	private ReasoningPipeline(List<String> names, List<Stage<Object, Object>> stages) {
+		this.names = names;
+		this.stages = stages;
+	}
+
+	public static <O> ReasoningPipeline<O> start(String name, Stage<Void, O> stage) {
+		return new ReasoningPipeline<Void>(Collections.<String>emptyList(), Collections.<Stage<Object, Object>>emptyList())
+				.then(name, stage);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <O> ReasoningPipeline<O> then(String name, Stage<? super T, O> stage) {
+		List<String> nextNames = new ArrayList<String>(names);
+		List<Stage<Object, Object>> nextStages = new ArrayList<Stage<Object, Object>>(stages);
+		nextNames.add(name);
+		nextStages.add((Stage<Object, Object>) (Stage<?, ?>) stage);
+		return new ReasoningPipeline<O>(nextNames, nextStages);
+	}
+
+	// A new task for each run: a javafx Task runs once
+	public Task<T> createTask() {
+		return new PipelineTask<T>(names, stages);
+	}
+
+	private static class PipelineTask<T> extends Task<T> implements StageContext {
+		private final List<String> names;
+		private final List<Stage<Object, Object>> stages;
+		private final List<Runnable> cancelActions = new CopyOnWriteArrayList<Runnable>();
+		private int current;
+
+		PipelineTask(List<String> names, List<Stage<Object, Object>> stages) {
+			this.names = names;
+			this.stages = stages;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected T call() throws Exception {
+			Object value = null;
+			for(current = 0; current < stages.size(); current++) {
+				if(isCancelled()) return null;
+				updateMessage(names.get(current));
+				updateProgress(current, stages.size());
+				cancelActions.clear();
+				value = stages.get(current).run(value, this);
+			}
+			cancelActions.clear();
+			updateProgress(stages.size(), stages.size());
+			return (T) value;
+		}
+
+		@Override
+		public void updateStageProgress(double done, double total) {
+			double fraction = total > 0 ? Math.min(1, done / total) : 0;
+			updateProgress(current + fraction, stages.size());
+		}
+
+		@Override
+		public void updateStageMessage(String detail) {
+			updateMessage(names.get(current) + " : " + detail);
+		}
+
+		@Override
+		public void onCancel(Runnable action) {
+			cancelActions.add(action);
+			if(isCancelled()) action.run();
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if(cancelled) {
+				for(Runnable action : cancelActions) {
+					action.run();
+				}
+			}
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLLogicalAxiom;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+
+/*
+ * The individuals named by the schema of an ontology (nominals, hasValue restrictions): the logical axioms
+ * other than assertions, over the imports closure. An assertion about one of them can change the class
+ * hierarchy and the types of any individual, e.g. Friend of a class defined as {alice} or knows value alice.
+ * Computed when first asked for, again after a change to the schema; the owner passes on its changes.
+ */
+public class SchemaIndividuals {
+	private final OWLOntology ontology;
+	private Set<OWLNamedIndividual> individuals;
+
+	public SchemaIndividuals(OWLOntology ontology) {
+		this.ontology = ontology;
+	}
+
+	// Whether the axiom names an individual of the schema
+	public synchronized boolean isMentionedBy(OWLAxiom axiom) {
+		if(individuals == null) index();
+		if(individuals.isEmpty()) return false;
+		for(OWLNamedIndividual individu : axiom.getIndividualsInSignature()) {
+			if(individuals.contains(individu)) return true;
+		}
+		return false;
+	}
+
+	// Assertions leave the schema as it is; anything else (an import included) drops it
+	public synchronized void changed(OWLOntologyChange change) {
+		if(!(change instanceof OWLAxiomChange)) {
+			individuals = null;
+			return;
+		}
+		OWLAxiom axiom = ((OWLAxiomChange) change).getAxiom();
+		if(axiom.isLogicalAxiom() && !axiom.isOfType(AxiomType.ABoxAxiomTypes)) individuals = null;
+	}
+
+	private void index() {
+		individuals = new HashSet<OWLNamedIndividual>();
+		for(OWLOntology ont : ontology.getImportsClosure()) {
+			for(OWLLogicalAxiom axiom : ont.getLogicalAxioms()) {
+				if(!axiom.isOfType(AxiomType.ABoxAxiomTypes)) individuals.addAll(axiom.getIndividualsInSignature());
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.handi.floci.modules.reasoning;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLNamedObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/*
+ * Dense int ordinals (0 .. n-1) for the classes and the individuals of an ontology, assigned in IRI order.
+ * Results indexed by ordinal are stored in primitive arrays instead of maps keyed by name.
+ * A table is immutable: it is rebuilt when the signature of the ontology changes, or derived with new
+ * individuals (withIndividuals) when only the assertions changed.
+ */
+public class SymbolTable {
+	private final List<OWLClass> classes;
+	private final List<OWLNamedIndividual> individuals;
+	private final Map<OWLClass, Integer> classOrdinals;
+	private final Map<OWLNamedIndividual, Integer> individualOrdinals;
+
+	// The classes and the individuals of the imports closure
+	public SymbolTable(OWLOntology ontology) {
+		this(ontology.getClassesInSignature(true), ontology.getIndividualsInSignature(true));
+	}
+
+	public SymbolTable(Collection<OWLClass> clazzes, Collection<OWLNamedIndividual> individus) {
+		classes = sorted(clazzes);
+		individuals = sorted(individus);
+		classOrdinals = ordinals(classes);
+		individualOrdinals = ordinals(individuals);
+	}
+
+	private SymbolTable(SymbolTable table, Collection<OWLNamedIndividual> individus) {
+		classes = table.classes;
+		classOrdinals = table.classOrdinals;
+		individuals = sorted(individus);
+		individualOrdinals = ordinals(individuals);
+	}
+
+	// Same classes and class ordinals, with other individuals (the individual ordinals are assigned again)
+	public SymbolTable withIndividuals(Collection<OWLNamedIndividual> individus) {
+		return new SymbolTable(this, individus);
+	}
+
+	// -1 if the class has no ordinal
+	public int getClassOrdinal(OWLClass clazz) {
+		Integer ordinal = classOrdinals.get(clazz);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	public OWLClass getClass(int ordinal) {
+		return classes.get(ordinal);
+	}
+
+	public int getClassCount() {
+		return classes.size();
+	}
+
+	public List<OWLClass> getClasses() {
+		return classes;
+	}
+
+	// -1 if the individual has no ordinal
+	public int getIndividualOrdinal(OWLNamedIndividual individu) {
+		Integer ordinal = individualOrdinals.get(individu);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	public OWLNamedIndividual getIndividual(int ordinal) {
+		return individuals.get(ordinal);
+	}
+
+	public int getIndividualCount() {
+		return individuals.size();
+	}
+
+	public List<OWLNamedIndividual> getIndividuals() {
+		return individuals;
+	}
+
+	private static <T extends OWLNamedObject> List<T> sorted(Collection<T> objects) {
+		List<T> list = new ArrayList<T>(objects);
+		Collections.sort(list, new Comparator<T>() {
+			@Override
+			public int compare(T o1, T o2) {
+				return o1.getIRI().compareTo(o2.getIRI());
+			}
+		});
+		return Collections.unmodifiableList(list);
+	}
+
+	private static <T> Map<T, Integer> ordinals(List<T> list) {
+		Map<T, Integer> map = new HashMap<T, Integer>(list.size() * 2);
+		for(int i = 0; i < list.size(); i++) {
+			map.put(list.get(i), i);
+		}
+		return map;
+	}
+}